@@ -0,0 +1,143 @@
+package com.sisvendas.demo;
+
+import com.sisvendas.model.Estorno;
+import com.sisvendas.model.Produto;
+import com.sisvendas.model.TipoVenda;
+import com.sisvendas.model.Venda;
+import com.sisvendas.repository.memory.InMemoryProdutoRepository;
+import com.sisvendas.repository.VendaRepository;
+import com.sisvendas.service.VendaService;
+import com.sisvendas.service.VendaServiceParticionado;
+import com.sisvendas.util.Par;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Mede vendas/s do VendaServiceParticionado para 1..N partições.
+// Uso: BenchmarkParticoes [threads] [segundos por rodada] [% de vendas com itens de várias partições]
+public class BenchmarkParticoes {
+    private static final int PRODUTOS = 10_000;
+    private static final int[] PARTICOES = {1, 2, 4, 8, 16};
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int percentualMulti = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Logger.getLogger(VendaService.class.getName()).setLevel(Level.WARNING);
+
+        System.out.printf("threads=%d, duracao=%ds, vendas multi-partição=%d%%%n", threads, segundos, percentualMulti);
+        System.out.println("partições | vendas/s | relativo a 1 partição");
+        double base = 0;
+        for (int numeroParticoes : PARTICOES) {
+            // Rodada de aquecimento do JIT, descartada.
+            medir(numeroParticoes, threads, 1, percentualMulti);
+            double vendasPorSegundo = medir(numeroParticoes, threads, segundos, percentualMulti);
+            if (base == 0) {
+                base = vendasPorSegundo;
+            }
+            System.out.printf("%9d | %8.0f | %.2fx%n", numeroParticoes, vendasPorSegundo, vendasPorSegundo / base);
+        }
+    }
+
+    private static double medir(int numeroParticoes, int threads, int segundos, int percentualMulti)
+            throws InterruptedException {
+        try (VendaServiceParticionado service = new VendaServiceParticionado(
+                numeroParticoes, InMemoryProdutoRepository::new, RepositorioVendasSemCopia::new)) {
+            List<Produto> produtos = new ArrayList<>(PRODUTOS);
+            for (int i = 0; i < PRODUTOS; i++) {
+                produtos.add(new Produto(String.format("%05d", i), "Produto " + i, 1.0 + i % 50, Integer.MAX_VALUE / 2));
+            }
+            service.salvarProdutos(produtos);
+
+            LongAdder vendas = new LongAdder();
+            CountDownLatch fim = new CountDownLatch(threads);
+            long limite = System.nanoTime() + segundos * 1_000_000_000L;
+            for (int t = 0; t < threads; t++) {
+                Thread cliente = new Thread(() -> {
+                    try {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        while (System.nanoTime() < limite) {
+                            List<Par<String, Integer>> itens = new ArrayList<>(3);
+                            int quantidadeItens = random.nextInt(100) < percentualMulti ? 3 : 1;
+                            for (int i = 0; i < quantidadeItens; i++) {
+                                itens.add(new Par<>(String.format("%05d", random.nextInt(PRODUTOS)), 1));
+                            }
+                            service.registrarVenda(TipoVenda.LOJA, itens, Optional.empty());
+                            vendas.increment();
+                        }
+                    } finally {
+                        fim.countDown();
+                    }
+                });
+                cliente.start();
+            }
+            fim.await();
+            return vendas.sum() / (double) segundos;
+        }
+    }
+
+    // O InMemoryVendaRepository copia a lista inteira a cada venda; com ele o benchmark mediria o crescimento do
+    // histórico, não o particionamento. Aqui a gravação é O(1).
+    private static final class RepositorioVendasSemCopia implements VendaRepository {
+        private final Queue<Venda> vendas = new ConcurrentLinkedQueue<>();
+        private final Map<String, Venda> vendasPorId = new ConcurrentHashMap<>();
+        private final Queue<Estorno> estornos = new ConcurrentLinkedQueue<>();
+        private final Map<String, Estorno> estornosPorVenda = new ConcurrentHashMap<>();
+        private final Set<String> enviadas = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void salvar(Venda venda) {
+            vendasPorId.put(venda.getId(), venda);
+            vendas.add(venda);
+        }
+
+        @Override
+        public List<Venda> listarTodas() {
+            return List.copyOf(vendas);
+        }
+
+        @Override
+        public Optional<Venda> buscarPorId(String id) {
+            return id == null ? Optional.empty() : Optional.ofNullable(vendasPorId.get(id));
+        }
+
+        @Override
+        public boolean registrarEstorno(Estorno estorno) {
+            if (estornosPorVenda.putIfAbsent(estorno.getVenda().getId(), estorno) != null) {
+                return false;
+            }
+            estornos.add(estorno);
+            return true;
+        }
+
+        @Override
+        public Optional<Estorno> buscarEstornoDaVenda(String vendaId) {
+            return vendaId == null ? Optional.empty() : Optional.ofNullable(estornosPorVenda.get(vendaId));
+        }
+
+        @Override
+        public List<Estorno> listarEstornos() {
+            return List.copyOf(estornos);
+        }
+
+        @Override
+        public boolean registrarEnvio(String vendaId) {
+            return enviadas.add(vendaId);
+        }
+
+        @Override
+        public boolean foiEnviada(String vendaId) {
+            return vendaId != null && enviadas.contains(vendaId);
+        }
+    }
+}
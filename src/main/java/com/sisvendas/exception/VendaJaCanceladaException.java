@@ -0,0 +1,8 @@
+package com.sisvendas.exception;
+
+public class VendaJaCanceladaException extends RuntimeException {
+    public VendaJaCanceladaException(String id) {
+        super("Venda já cancelada: " + id);
+    }
+}
+
@@ -0,0 +1,8 @@
+package com.sisvendas.exception;
+
+public class VendaNaoEncontradaException extends RuntimeException {
+    public VendaNaoEncontradaException(String id) {
+        super("Venda não encontrada: " + id);
+    }
+}
+
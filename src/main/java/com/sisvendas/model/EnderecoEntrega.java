@@ -63,6 +63,24 @@ public final class EnderecoEntrega {
     public String getCep() {
         return cep;
     }
-}
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EnderecoEntrega)) return false;
+        EnderecoEntrega that = (EnderecoEntrega) o;
+        return destinatario.equals(that.destinatario)
+                && logradouro.equals(that.logradouro)
+                && numero.equals(that.numero)
+                && bairro.equals(that.bairro)
+                && cidade.equals(that.cidade)
+                && uf.equals(that.uf)
+                && cep.equals(that.cep);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(destinatario, logradouro, numero, bairro, cidade, uf, cep);
+    }
+}
 
@@ -0,0 +1,51 @@
+package com.sisvendas.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+public final class Estorno {
+    private final String id;
+    private final Venda venda;
+    private final LocalDateTime dataHora;
+
+    public Estorno(String id, Venda venda, LocalDateTime dataHora) {
+        this.id = Objects.requireNonNull(id, "id é obrigatório");
+        this.venda = Objects.requireNonNull(venda, "venda é obrigatória");
+        this.dataHora = Objects.requireNonNull(dataHora, "dataHora é obrigatória");
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Venda getVenda() {
+        return venda;
+    }
+
+    public LocalDateTime getDataHora() {
+        return dataHora;
+    }
+
+    public List<ItemVenda> getItens() {
+        return venda.getItens();
+    }
+
+    public double getTotal() {
+        return -venda.getTotal();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Estorno)) return false;
+        Estorno estorno = (Estorno) o;
+        return id.equals(estorno.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+}
+
@@ -1,6 +1,7 @@
 package com.sisvendas.repository;
 
 import com.sisvendas.model.Produto;
+import java.util.Collection;
 import java.util.Optional;
 
 public interface ProdutoRepository {
@@ -8,6 +9,12 @@ public interface ProdutoRepository {
     void salvar(Produto produto);
     void atualizar(Produto produto);
 
+    default void salvarTodos(Collection<Produto> produtos) {
+        for (Produto produto : produtos) {
+            salvar(produto);
+        }
+    }
+
     java.util.List<Produto> listarTodos();
 }
 
@@ -1,11 +1,23 @@
 package com.sisvendas.repository;
 
+import com.sisvendas.model.Estorno;
 import com.sisvendas.model.Venda;
 import java.util.List;
+import java.util.Optional;
 
 public interface VendaRepository {
     void salvar(Venda venda);
     List<Venda> listarTodas();
-}
 
+    Optional<Venda> buscarPorId(String id);
+
+    // Deve ser atômico por venda: devolve false se ela já tiver um estorno registrado.
+    boolean registrarEstorno(Estorno estorno);
+    Optional<Estorno> buscarEstornoDaVenda(String vendaId);
+    List<Estorno> listarEstornos();
+
+    // Deve ser atômico por venda: devolve false se o envio já tiver sido registrado.
+    boolean registrarEnvio(String vendaId);
+    boolean foiEnviada(String vendaId);
+}
 
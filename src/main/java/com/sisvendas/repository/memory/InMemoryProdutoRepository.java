@@ -2,6 +2,8 @@ package com.sisvendas.repository.memory;
 
 import com.sisvendas.model.Produto;
 import com.sisvendas.repository.ProdutoRepository;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
@@ -20,6 +22,15 @@ public class InMemoryProdutoRepository implements ProdutoRepository {
         storage.put(produto.getCodigo(), produto);
     }
 
+    @Override
+    public void salvarTodos(Collection<Produto> produtos) {
+        Map<String, Produto> lote = new HashMap<>();
+        for (Produto produto : produtos) {
+            lote.put(produto.getCodigo(), produto);
+        }
+        storage.putAll(lote);
+    }
+
     @Override
     public void atualizar(Produto produto) {
         storage.put(produto.getCodigo(), produto);
@@ -1,17 +1,27 @@
 package com.sisvendas.repository.memory;
 
+import com.sisvendas.model.Estorno;
 import com.sisvendas.model.Venda;
 import com.sisvendas.repository.VendaRepository;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public class InMemoryVendaRepository implements VendaRepository {
     private final List<Venda> vendas = new CopyOnWriteArrayList<>();
+    private final Map<String, Venda> vendasPorId = new ConcurrentHashMap<>();
+    private final List<Estorno> estornos = new CopyOnWriteArrayList<>();
+    private final Map<String, Estorno> estornosPorVenda = new ConcurrentHashMap<>();
+    private final Set<String> enviadas = ConcurrentHashMap.newKeySet();
 
     @Override
     public void salvar(Venda venda) {
+        vendasPorId.put(venda.getId(), venda);
         vendas.add(venda);
     }
 
@@ -19,6 +29,40 @@ public class InMemoryVendaRepository implements VendaRepository {
     public List<Venda> listarTodas() {
         return Collections.unmodifiableList(new ArrayList<>(vendas));
     }
-}
 
+    @Override
+    public Optional<Venda> buscarPorId(String id) {
+        if (id == null) return Optional.empty();
+        return Optional.ofNullable(vendasPorId.get(id));
+    }
+
+    @Override
+    public boolean registrarEstorno(Estorno estorno) {
+        if (estornosPorVenda.putIfAbsent(estorno.getVenda().getId(), estorno) != null) {
+            return false;
+        }
+        estornos.add(estorno);
+        return true;
+    }
+
+    @Override
+    public Optional<Estorno> buscarEstornoDaVenda(String vendaId) {
+        if (vendaId == null) return Optional.empty();
+        return Optional.ofNullable(estornosPorVenda.get(vendaId));
+    }
+
+    @Override
+    public List<Estorno> listarEstornos() {
+        return Collections.unmodifiableList(new ArrayList<>(estornos));
+    }
 
+    @Override
+    public boolean registrarEnvio(String vendaId) {
+        return enviadas.add(vendaId);
+    }
+
+    @Override
+    public boolean foiEnviada(String vendaId) {
+        return vendaId != null && enviadas.contains(vendaId);
+    }
+}
@@ -0,0 +1,61 @@
+package com.sisvendas.service;
+
+import com.sisvendas.model.ItemVenda;
+import com.sisvendas.model.Produto;
+import com.sisvendas.model.Venda;
+import com.sisvendas.service.dto.ResumoPorProduto;
+import com.sisvendas.service.dto.ResumoVendas;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Totais de ResumoVendas mantidos a cada venda e estorno, sem varrer o histórico.
+class AcumuladorResumoVendas {
+    private final Map<String, Acumulado> porProduto = new HashMap<>();
+    private int totalItens;
+    private double totalVendido;
+
+    synchronized void adicionar(Venda venda) {
+        aplicar(venda, 1);
+    }
+
+    synchronized void subtrair(Venda venda) {
+        aplicar(venda, -1);
+    }
+
+    synchronized ResumoVendas resumo() {
+        List<ResumoPorProduto> resumos = new ArrayList<>(porProduto.size());
+        for (Acumulado acumulado : porProduto.values()) {
+            resumos.add(new ResumoPorProduto(acumulado.produto.getCodigo(), acumulado.produto.getNome(),
+                    acumulado.quantidade, acumulado.valor));
+        }
+        resumos.sort(Comparator.comparingInt(ResumoPorProduto::quantidadeVendida).reversed());
+        return new ResumoVendas(totalItens, totalVendido, resumos);
+    }
+
+    private void aplicar(Venda venda, int sinal) {
+        totalVendido += sinal * venda.getTotal();
+        for (ItemVenda item : venda.getItens()) {
+            totalItens += sinal * item.getQuantidade();
+            String codigo = item.getProduto().getCodigo();
+            Acumulado acumulado = porProduto.computeIfAbsent(codigo, c -> new Acumulado(item.getProduto()));
+            acumulado.quantidade += sinal * item.getQuantidade();
+            acumulado.valor += sinal * item.getSubtotal();
+            if (acumulado.quantidade == 0) {
+                porProduto.remove(codigo);
+            }
+        }
+    }
+
+    private static final class Acumulado {
+        private final Produto produto;
+        private int quantidade;
+        private double valor;
+
+        Acumulado(Produto produto) {
+            this.produto = produto;
+        }
+    }
+}
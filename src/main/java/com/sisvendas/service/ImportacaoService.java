@@ -0,0 +1,378 @@
+package com.sisvendas.service;
+
+import com.sisvendas.model.Produto;
+import com.sisvendas.service.dto.ErroImportacao;
+import com.sisvendas.service.dto.ProgressoImportacao;
+import com.sisvendas.service.dto.ResultadoImportacao;
+import com.sisvendas.util.Par;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ImportacaoService {
+    private static final Logger LOGGER = Logger.getLogger(ImportacaoService.class.getName());
+
+    private static final char SEPARADOR = ';';
+    private static final int TAMANHO_LOTE_PADRAO = 5_000;
+    private static final int MAX_ERROS_DETALHADOS = 1_000;
+    private static final List<String> CABECALHO_CATALOGO = List.of("codigo", "nome", "preco", "quantidade");
+    private static final List<String> CABECALHO_REPOSICAO = List.of("codigo", "quantidade");
+
+    private final VendaService vendaService;
+    private final int paralelismo;
+    private final int tamanhoLote;
+
+    public ImportacaoService(VendaService vendaService) {
+        this(vendaService, Runtime.getRuntime().availableProcessors(), TAMANHO_LOTE_PADRAO);
+    }
+
+    public ImportacaoService(VendaService vendaService, int paralelismo, int tamanhoLote) {
+        this.vendaService = Objects.requireNonNull(vendaService, "vendaService é obrigatório");
+        if (paralelismo < 1) {
+            throw new IllegalArgumentException("paralelismo deve ser >= 1");
+        }
+        if (tamanhoLote < 1) {
+            throw new IllegalArgumentException("tamanho do lote deve ser >= 1");
+        }
+        this.paralelismo = paralelismo;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    public ResultadoImportacao importarCatalogo(Reader origem, Consumer<ProgressoImportacao> progresso) {
+        return processar(origem, progresso, CABECALHO_CATALOGO, this::prepararCatalogo);
+    }
+
+    public ResultadoImportacao importarReposicao(Reader origem, Consumer<ProgressoImportacao> progresso) {
+        return processar(origem, progresso, CABECALHO_REPOSICAO, this::prepararReposicao);
+    }
+
+    private LotePreparado prepararCatalogo(List<String> linhas, long primeiraLinha, Consumer<ErroImportacao> erros) {
+        Map<String, Produto> produtos = new LinkedHashMap<>();
+        List<Integer> validas = new ArrayList<>(linhas.size());
+        for (int i = 0; i < linhas.size(); i++) {
+            String linha = linhas.get(i);
+            if (linha.isBlank()) {
+                continue;
+            }
+            try {
+                List<String> campos = separar(linha);
+                if (campos.size() < 3 || campos.size() > 4) {
+                    throw new IllegalArgumentException("esperado codigo;nome;preco[;quantidade]");
+                }
+                int quantidade = campos.size() == 4 ? lerQuantidade(campos.get(3), 0) : 0;
+                Produto produto = new Produto(obrigatorio(campos.get(0), "código"),
+                        obrigatorio(campos.get(1), "nome"), lerPreco(campos.get(2)), quantidade);
+                produtos.put(produto.getCodigo(), produto);
+                validas.add(i);
+            } catch (IllegalArgumentException e) {
+                erros.accept(new ErroImportacao(primeiraLinha + i, linha, e.getMessage()));
+            }
+        }
+        return new LotePreparado(validas, () -> vendaService.salvarProdutos(new ArrayList<>(produtos.values())));
+    }
+
+    private LotePreparado prepararReposicao(List<String> linhas, long primeiraLinha, Consumer<ErroImportacao> erros) {
+        Map<String, Integer> deltas = new LinkedHashMap<>();
+        List<Integer> validas = new ArrayList<>(linhas.size());
+        for (int i = 0; i < linhas.size(); i++) {
+            String linha = linhas.get(i);
+            if (linha.isBlank()) {
+                continue;
+            }
+            try {
+                List<String> campos = separar(linha);
+                if (campos.size() != 2) {
+                    throw new IllegalArgumentException("esperado codigo;quantidade");
+                }
+                String codigo = obrigatorio(campos.get(0), "código");
+                int quantidade = lerQuantidade(campos.get(1), 1);
+                Produto produto = vendaService.buscarProduto(codigo)
+                        .orElseThrow(() -> new IllegalArgumentException("produto não encontrado: " + codigo));
+                // Checagem antecipada para rejeitar só esta linha; a verificação definitiva fica em reporEstoque.
+                int acumulado = Math.addExact(deltas.getOrDefault(codigo, 0), quantidade);
+                Math.addExact(produto.getQuantidade(), acumulado);
+                deltas.put(codigo, acumulado);
+                validas.add(i);
+            } catch (ArithmeticException e) {
+                erros.accept(new ErroImportacao(primeiraLinha + i, linha, "quantidade excede o limite de estoque"));
+            } catch (IllegalArgumentException e) {
+                erros.accept(new ErroImportacao(primeiraLinha + i, linha, e.getMessage()));
+            }
+        }
+        List<Par<String, Integer>> entradas = new ArrayList<>(deltas.size());
+        deltas.forEach((codigo, quantidade) -> entradas.add(new Par<>(codigo, quantidade)));
+        return new LotePreparado(validas, () -> vendaService.reporEstoque(entradas));
+    }
+
+    private ResultadoImportacao processar(Reader origem,
+                                          Consumer<ProgressoImportacao> progresso,
+                                          List<String> cabecalho,
+                                          ProcessadorLote processador) {
+        Objects.requireNonNull(origem, "origem é obrigatória");
+        long inicio = System.nanoTime();
+        Execucao execucao = new Execucao(progresso);
+        int maxLotesEmMemoria = paralelismo * 2;
+        Semaphore lotesEmMemoria = new Semaphore(maxLotesEmMemoria);
+        ExecutorService executor = Executors.newFixedThreadPool(paralelismo);
+        try (BufferedReader leitor = origem instanceof BufferedReader b ? b : new BufferedReader(origem)) {
+            List<String> lote = new ArrayList<>(tamanhoLote);
+            long numeroLinha = 0;
+            long primeiraLinhaDoLote = 1;
+            long sequencia = 0;
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                numeroLinha++;
+                if (numeroLinha == 1 && ehCabecalho(linha, cabecalho)) {
+                    primeiraLinhaDoLote = 2;
+                    continue;
+                }
+                lote.add(linha);
+                if (lote.size() == tamanhoLote) {
+                    submeter(executor, lotesEmMemoria, execucao, processador, lote, primeiraLinhaDoLote, sequencia++);
+                    lote = new ArrayList<>(tamanhoLote);
+                    primeiraLinhaDoLote = numeroLinha + 1;
+                }
+            }
+            if (!lote.isEmpty()) {
+                submeter(executor, lotesEmMemoria, execucao, processador, lote, primeiraLinhaDoLote, sequencia);
+            }
+            lotesEmMemoria.acquire(maxLotesEmMemoria);
+        } catch (IOException e) {
+            throw new UncheckedIOException("falha ao ler arquivo de importação", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("importação interrompida", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ResultadoImportacao resultado = execucao.resultado(Duration.ofNanos(System.nanoTime() - inicio));
+        LOGGER.log(Level.INFO, "Importação concluída: linhas={0}, aplicadas={1}, rejeitadas={2}, duracao={3}",
+                new Object[]{resultado.linhasProcessadas(), resultado.registrosAplicados(),
+                        resultado.linhasRejeitadas(), resultado.duracao()});
+        return resultado;
+    }
+
+    private static void submeter(ExecutorService executor,
+                                 Semaphore lotesEmMemoria,
+                                 Execucao execucao,
+                                 ProcessadorLote processador,
+                                 List<String> lote,
+                                 long primeiraLinha,
+                                 long sequencia) throws InterruptedException {
+        lotesEmMemoria.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    execucao.processarLote(processador, lote, primeiraLinha, sequencia);
+                } finally {
+                    lotesEmMemoria.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            lotesEmMemoria.release();
+            throw e;
+        }
+    }
+
+    private static boolean ehCabecalho(String linha, List<String> cabecalho) {
+        List<String> campos = separar(linha);
+        if (campos.size() < 2 || campos.size() > cabecalho.size()) {
+            return false;
+        }
+        for (int i = 0; i < campos.size(); i++) {
+            if (!campos.get(i).equalsIgnoreCase(cabecalho.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> separar(String linha) {
+        List<String> campos = new ArrayList<>(4);
+        int inicio = 0;
+        int fim;
+        while ((fim = linha.indexOf(SEPARADOR, inicio)) >= 0) {
+            campos.add(linha.substring(inicio, fim).strip());
+            inicio = fim + 1;
+        }
+        campos.add(linha.substring(inicio).strip());
+        return campos;
+    }
+
+    private static String obrigatorio(String valor, String campo) {
+        if (valor.isEmpty()) {
+            throw new IllegalArgumentException(campo + " não pode ser vazio");
+        }
+        return valor;
+    }
+
+    private static double lerPreco(String valor) {
+        try {
+            double preco = Double.parseDouble(valor.replace(',', '.'));
+            if (Double.isNaN(preco) || Double.isInfinite(preco)) {
+                throw new IllegalArgumentException("preço inválido: " + valor);
+            }
+            return preco;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("preço inválido: " + valor, e);
+        }
+    }
+
+    private static int lerQuantidade(String valor, int minimo) {
+        try {
+            int quantidade = Integer.parseInt(valor);
+            if (quantidade < minimo) {
+                throw new IllegalArgumentException("quantidade deve ser >= " + minimo);
+            }
+            return quantidade;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("quantidade inválida: " + valor, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ProcessadorLote {
+        LotePreparado preparar(List<String> linhas, long primeiraLinha, Consumer<ErroImportacao> erros);
+    }
+
+    // indicesValidos: posições no lote das linhas que a aplicação grava (e que são rejeitadas se ela falhar).
+    private record LotePreparado(List<Integer> indicesValidos, Runnable aplicacao) { }
+
+    private static final class Execucao {
+        private final Consumer<ProgressoImportacao> progresso;
+        private final AtomicLong linhasProcessadas = new AtomicLong();
+        private final AtomicLong registrosAplicados = new AtomicLong();
+        private final AtomicLong linhasRejeitadas = new AtomicLong();
+        private final AtomicInteger errosGuardados = new AtomicInteger();
+        private final Queue<ErroImportacao> erros = new ConcurrentLinkedQueue<>();
+        private final Object ordemAplicacao = new Object();
+        private long proximoLote;
+
+        Execucao(Consumer<ProgressoImportacao> progresso) {
+            this.progresso = progresso;
+        }
+
+        // A validação roda em paralelo; a aplicação segue a ordem do arquivo, para que o último registro de um
+        // código no arquivo seja o que prevalece. Como a aplicação já é serializada pelo lock de estoque, a
+        // ordenação não custa vazão.
+        void processarLote(ProcessadorLote processador, List<String> lote, long primeiraLinha, long sequencia) {
+            int aplicadas = 0;
+            boolean naVez = false;
+            try {
+                LotePreparado preparado = preparar(processador, lote, primeiraLinha);
+                aguardarVez(sequencia);
+                naVez = true;
+                aplicadas = aplicar(preparado, lote, primeiraLinha);
+            } finally {
+                // Mesmo com Error, a vez é passada exatamente uma vez; senão os lotes seguintes esperariam para sempre.
+                if (!naVez) {
+                    aguardarVez(sequencia);
+                }
+                liberarVez();
+                registrosAplicados.addAndGet(aplicadas);
+                linhasProcessadas.addAndGet(lote.stream().filter(l -> !l.isBlank()).count());
+                if (progresso != null) {
+                    synchronized (this) {
+                        progresso.accept(new ProgressoImportacao(
+                                linhasProcessadas.get(), registrosAplicados.get(), linhasRejeitadas.get()));
+                    }
+                }
+            }
+        }
+
+        private LotePreparado preparar(ProcessadorLote processador, List<String> lote, long primeiraLinha) {
+            List<ErroImportacao> errosDoLote = new ArrayList<>();
+            try {
+                LotePreparado preparado = processador.preparar(lote, primeiraLinha, errosDoLote::add);
+                errosDoLote.forEach(this::registrarErro);
+                return preparado;
+            } catch (RuntimeException | Error e) {
+                LOGGER.log(Level.WARNING, "Falha ao validar lote iniciado na linha " + primeiraLinha, e);
+                for (int i = 0; i < lote.size(); i++) {
+                    if (!lote.get(i).isBlank()) {
+                        registrarErro(new ErroImportacao(primeiraLinha + i, lote.get(i),
+                                "falha ao validar lote: " + e.getMessage()));
+                    }
+                }
+                throw e;
+            }
+        }
+
+        private int aplicar(LotePreparado preparado, List<String> lote, long primeiraLinha) {
+            if (preparado.indicesValidos().isEmpty()) {
+                return 0;
+            }
+            try {
+                preparado.aplicacao().run();
+                return preparado.indicesValidos().size();
+            } catch (RuntimeException | Error e) {
+                LOGGER.log(Level.WARNING, "Falha ao aplicar lote iniciado na linha " + primeiraLinha, e);
+                for (int indice : preparado.indicesValidos()) {
+                    registrarErro(new ErroImportacao(primeiraLinha + indice, lote.get(indice),
+                            "falha ao aplicar lote: " + e.getMessage()));
+                }
+                if (e instanceof Error erro) {
+                    throw erro;
+                }
+                return 0;
+            }
+        }
+
+        // Os lotes saem da fila do executor na ordem de envio, então os anteriores a este já estão em execução:
+        // a espera sempre termina. Ela ignora interrupções para não furar a ordem.
+        private void aguardarVez(long sequencia) {
+            boolean interrompida = false;
+            synchronized (ordemAplicacao) {
+                while (proximoLote != sequencia) {
+                    try {
+                        ordemAplicacao.wait();
+                    } catch (InterruptedException e) {
+                        interrompida = true;
+                    }
+                }
+            }
+            if (interrompida) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void liberarVez() {
+            synchronized (ordemAplicacao) {
+                proximoLote++;
+                ordemAplicacao.notifyAll();
+            }
+        }
+
+        private void registrarErro(ErroImportacao erro) {
+            linhasRejeitadas.incrementAndGet();
+            if (errosGuardados.incrementAndGet() <= MAX_ERROS_DETALHADOS) {
+                erros.add(erro);
+            }
+        }
+
+        ResultadoImportacao resultado(Duration duracao) {
+            List<ErroImportacao> ordenados = new ArrayList<>(erros);
+            ordenados.sort((a, b) -> Long.compare(a.linha(), b.linha()));
+            return new ResultadoImportacao(linhasProcessadas.get(), registrosAplicados.get(),
+                    linhasRejeitadas.get(), List.copyOf(ordenados), duracao);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.sisvendas.service;
+
+import com.sisvendas.model.EnderecoEntrega;
+import com.sisvendas.model.TipoVenda;
+import com.sisvendas.model.Venda;
+import com.sisvendas.service.dto.ManifestoEnvio;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class IndiceEntregas {
+    // Chave: CEP só com dígitos + '|' + id da venda, para que prefixos e faixas de CEP sejam consultas de intervalo.
+    private static final char SEPARADOR_CHAVE = '|';
+
+    // Mesma ordem das consultas, para combinar resultados de vários índices (ex.: partições).
+    static final Comparator<Venda> ORDEM_CEP = Comparator.comparing(IndiceEntregas::chave);
+
+    private final NavigableMap<String, Venda> porCep = new ConcurrentSkipListMap<>();
+    private final Map<String, NavigableMap<String, Venda>> porUf = new ConcurrentHashMap<>();
+    private final Map<String, Posicao> posicaoPorVenda = new ConcurrentHashMap<>();
+
+    // Escritas serializadas: sem isso, um remover concorrente com o indexar da mesma venda podia rodar entre as
+    // inserções nos dois mapas e deixar a venda pendente para sempre. As consultas continuam sem lock.
+    public synchronized void indexar(Venda venda) {
+        Objects.requireNonNull(venda, "venda é obrigatória");
+        if (venda.getTipo() != TipoVenda.WEB || venda.getEnderecoEntrega().isEmpty()) {
+            return;
+        }
+        EnderecoEntrega endereco = venda.getEnderecoEntrega().get();
+        if (posicaoPorVenda.containsKey(venda.getId())) {
+            return;
+        }
+        Posicao posicao = new Posicao(normalizarUf(endereco.getUf()), chave(venda));
+        porUf.computeIfAbsent(posicao.uf(), uf -> new ConcurrentSkipListMap<>()).put(posicao.chave(), venda);
+        porCep.put(posicao.chave(), venda);
+        posicaoPorVenda.put(venda.getId(), posicao);
+    }
+
+    public synchronized boolean remover(String vendaId) {
+        if (vendaId == null) {
+            return false;
+        }
+        Posicao posicao = posicaoPorVenda.remove(vendaId);
+        if (posicao == null) {
+            return false;
+        }
+        porCep.remove(posicao.chave());
+        NavigableMap<String, Venda> daUf = porUf.get(posicao.uf());
+        if (daUf != null) {
+            daUf.remove(posicao.chave());
+        }
+        return true;
+    }
+
+    public List<Venda> pendentesPorUf(String uf) {
+        NavigableMap<String, Venda> daUf = porUf.get(normalizarUf(uf));
+        return daUf == null ? List.of() : List.copyOf(daUf.values());
+    }
+
+    public List<Venda> pendentesPorPrefixoCep(String prefixo) {
+        String inicio = normalizarCep(prefixo);
+        return List.copyOf(porCep.subMap(inicio, true, inicio + Character.MAX_VALUE, false).values());
+    }
+
+    public List<Venda> pendentesPorFaixaCep(String cepInicial, String cepFinal) {
+        String inicio = normalizarCep(cepInicial);
+        String fim = normalizarCep(cepFinal);
+        if (inicio.compareTo(fim) > 0) {
+            return List.of();
+        }
+        return List.copyOf(porCep.subMap(inicio, true, fim + Character.MAX_VALUE, false).values());
+    }
+
+    // Só leitura: as vendas saem das pendentes quando o envio é confirmado (remover).
+    public ManifestoEnvio gerarManifesto(String uf) {
+        return new ManifestoEnvio(normalizarUf(uf), LocalDateTime.now(), pendentesPorUf(uf));
+    }
+
+    public int totalPendentes() {
+        return posicaoPorVenda.size();
+    }
+
+    private static String chave(Venda venda) {
+        return normalizarCep(venda.getEnderecoEntrega().get().getCep()) + SEPARADOR_CHAVE + venda.getId();
+    }
+
+    static String normalizarUf(String uf) {
+        Objects.requireNonNull(uf, "UF é obrigatória");
+        return uf.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String normalizarCep(String cep) {
+        Objects.requireNonNull(cep, "CEP é obrigatório");
+        StringBuilder digitos = new StringBuilder(cep.length());
+        for (int i = 0; i < cep.length(); i++) {
+            char c = cep.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos.append(c);
+            }
+        }
+        return digitos.toString();
+    }
+
+    private record Posicao(String uf, String chave) { }
+}
@@ -0,0 +1,206 @@
+package com.sisvendas.service;
+
+import com.sisvendas.service.dto.PrevisaoRuptura;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Taxa de vendas por produto como média móvel exponencial em tempo contínuo (constante de tempo = janela).
+// Todas as taxas decaem pelo mesmo fator com o tempo, então guardamos a taxa escalada para o instante de origem
+// (em log, para não estourar): a ordem de cobertura entre produtos só muda quando há venda ou ajuste de estoque,
+// e o índice ordenado continua válido entre atualizações.
+public class PrevisorRuptura {
+    private static final Logger LOGGER = Logger.getLogger(PrevisorRuptura.class.getName());
+    private static final double NANOS_POR_HORA = 3_600_000_000_000.0;
+    // Sobra mínima (em log) ao retirar uma saída; abaixo disso é erro de arredondamento e a taxa é zerada.
+    private static final double RESIDUO_MINIMO = 1e-9;
+
+    private final double janelaHoras;
+    private final LongSupplier relogioNanos;
+    private final long origemNanos;
+    private final Map<String, Estado> estados = new ConcurrentHashMap<>();
+    private final NavigableSet<Estado> porCobertura = new ConcurrentSkipListSet<>();
+
+    public PrevisorRuptura(Duration janela) {
+        this(janela, System::nanoTime);
+    }
+
+    public PrevisorRuptura(Duration janela, LongSupplier relogioNanos) {
+        Objects.requireNonNull(janela, "janela é obrigatória");
+        if (janela.isNegative() || janela.isZero()) {
+            throw new IllegalArgumentException("janela deve ser positiva");
+        }
+        this.janelaHoras = janela.toNanos() / NANOS_POR_HORA;
+        this.relogioNanos = Objects.requireNonNull(relogioNanos, "relogioNanos é obrigatório");
+        this.origemNanos = relogioNanos.getAsLong();
+    }
+
+    // Devolve o instante da saída no relógio do previsor, a ser passado de volta em registrarDevolucao.
+    public synchronized long registrarSaida(String codigo, int quantidade, int estoqueRestante) {
+        long agora = relogioNanos.getAsLong();
+        if (quantidade <= 0) {
+            return agora;
+        }
+        double expoente = Math.log(quantidade / janelaHoras) + horasDesde(agora) / janelaHoras;
+        Estado atual = estados.get(codigo);
+        double logTaxa = atual == null ? expoente : somarLogs(atual.logTaxaEscalada, expoente);
+        substituir(atual, new Estado(codigo, estoqueRestante, logTaxa));
+        return agora;
+    }
+
+    // Desfaz a saída registrada em `instanteSaida` (o valor devolvido por registrarSaida): retira da taxa a
+    // contribuição exata dela. Se não sobrar taxa, o produto sai do índice, como se nunca tivesse vendido.
+    public synchronized void registrarDevolucao(String codigo, int quantidade, long instanteSaida, int estoque) {
+        Estado atual = estados.get(codigo);
+        if (atual == null || quantidade <= 0) {
+            atualizarEstoque(codigo, estoque);
+            return;
+        }
+        double expoente = Math.log(quantidade / janelaHoras) + horasDesde(instanteSaida) / janelaHoras;
+        double diferenca = expoente - atual.logTaxaEscalada;
+        if (diferenca > -RESIDUO_MINIMO) {
+            porCobertura.remove(atual);
+            estados.remove(codigo);
+            return;
+        }
+        substituir(atual, new Estado(codigo, estoque, atual.logTaxaEscalada + Math.log1p(-Math.exp(diferenca))));
+    }
+
+    public synchronized void atualizarEstoque(String codigo, int estoque) {
+        Estado atual = estados.get(codigo);
+        if (atual != null && atual.estoque != estoque) {
+            substituir(atual, new Estado(codigo, estoque, atual.logTaxaEscalada));
+        }
+    }
+
+    public Optional<Duration> tempoAteRuptura(String codigo) {
+        Estado estado = estados.get(codigo);
+        if (estado == null) {
+            return Optional.empty();
+        }
+        return Optional.of(paraDuracao(Math.exp(estado.chave + horasDesdeOrigem() / janelaHoras)));
+    }
+
+    // Mesmo monitor das atualizações: elas removem e reinserem o estado no índice, e uma varredura sem lock podia ver
+    // o produto duas vezes ou nenhuma.
+    public synchronized List<PrevisaoRuptura> produtosAbaixoDeCobertura(Duration horizonte) {
+        Objects.requireNonNull(horizonte, "horizonte é obrigatório");
+        double horizonteHoras = horizonte.toNanos() / NANOS_POR_HORA;
+        if (horizonteHoras <= 0) {
+            return List.of();
+        }
+        double ajuste = horasDesdeOrigem() / janelaHoras;
+        List<PrevisaoRuptura> emRisco = new ArrayList<>();
+        for (Estado estado : porCobertura.headSet(Estado.limite(Math.log(horizonteHoras) - ajuste), false)) {
+            emRisco.add(new PrevisaoRuptura(estado.codigo, estado.estoque,
+                    Math.exp(estado.logTaxaEscalada - ajuste), paraDuracao(Math.exp(estado.chave + ajuste))));
+        }
+        return emRisco;
+    }
+
+    public ScheduledFuture<?> agendarAlertas(ScheduledExecutorService agendador,
+                                             Duration horizonte,
+                                             Duration periodo,
+                                             Consumer<List<PrevisaoRuptura>> alerta) {
+        Objects.requireNonNull(horizonte, "horizonte é obrigatório");
+        return agendarAlertas(agendador, periodo, () -> produtosAbaixoDeCobertura(horizonte), alerta);
+    }
+
+    // Executa a consulta a cada período e chama o alerta quando ela devolve algum produto.
+    static ScheduledFuture<?> agendarAlertas(ScheduledExecutorService agendador,
+                                             Duration periodo,
+                                             Supplier<List<PrevisaoRuptura>> consulta,
+                                             Consumer<List<PrevisaoRuptura>> alerta) {
+        Objects.requireNonNull(agendador, "agendador é obrigatório");
+        Objects.requireNonNull(consulta, "consulta é obrigatória");
+        Objects.requireNonNull(alerta, "alerta é obrigatório");
+        long periodoNanos = Objects.requireNonNull(periodo, "periodo é obrigatório").toNanos();
+        return agendador.scheduleAtFixedRate(() -> {
+            try {
+                List<PrevisaoRuptura> emRisco = consulta.get();
+                if (!emRisco.isEmpty()) {
+                    alerta.accept(emRisco);
+                }
+            } catch (RuntimeException e) {
+                // Uma exceção aqui cancelaria o agendamento.
+                LOGGER.log(Level.WARNING, "Falha ao emitir alerta de ruptura", e);
+            }
+        }, periodoNanos, periodoNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void substituir(Estado atual, Estado novo) {
+        if (atual != null) {
+            porCobertura.remove(atual);
+        }
+        estados.put(novo.codigo, novo);
+        porCobertura.add(novo);
+    }
+
+    private double horasDesdeOrigem() {
+        return horasDesde(relogioNanos.getAsLong());
+    }
+
+    private double horasDesde(long instanteNanos) {
+        return (instanteNanos - origemNanos) / NANOS_POR_HORA;
+    }
+
+    private static double somarLogs(double a, double b) {
+        double maior = Math.max(a, b);
+        return maior + Math.log1p(Math.exp(Math.min(a, b) - maior));
+    }
+
+    private static Duration paraDuracao(double horas) {
+        double nanos = horas * NANOS_POR_HORA;
+        return nanos >= Long.MAX_VALUE ? Duration.ofNanos(Long.MAX_VALUE) : Duration.ofNanos((long) nanos);
+    }
+
+    private static final class Estado implements Comparable<Estado> {
+        private final String codigo;
+        private final int estoque;
+        private final double logTaxaEscalada;
+        // log(cobertura na origem) = log(estoque) - log(taxa escalada); estoque 0 dá -infinito (ruptura já ocorrida).
+        private final double chave;
+
+        Estado(String codigo, int estoque, double logTaxaEscalada) {
+            this(codigo, estoque, logTaxaEscalada, Math.log(estoque) - logTaxaEscalada);
+        }
+
+        private Estado(String codigo, int estoque, double logTaxaEscalada, double chave) {
+            this.codigo = codigo;
+            this.estoque = estoque;
+            this.logTaxaEscalada = logTaxaEscalada;
+            this.chave = chave;
+        }
+
+        // Sentinela de busca: fica antes de qualquer estado com a mesma chave.
+        static Estado limite(double chave) {
+            return new Estado(null, 0, Double.NEGATIVE_INFINITY, chave);
+        }
+
+        @Override
+        public int compareTo(Estado outro) {
+            int porChave = Double.compare(chave, outro.chave);
+            if (porChave != 0) {
+                return porChave;
+            }
+            if (codigo == null || outro.codigo == null) {
+                return codigo == null ? (outro.codigo == null ? 0 : -1) : 1;
+            }
+            return codigo.compareTo(outro.codigo);
+        }
+    }
+}
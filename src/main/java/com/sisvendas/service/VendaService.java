@@ -3,37 +3,136 @@ package com.sisvendas.service;
 import com.sisvendas.exception.EstoqueInsuficienteException;
 import com.sisvendas.exception.ProdutoNaoEncontradoException;
 import com.sisvendas.exception.ValidacaoVendaException;
+import com.sisvendas.exception.VendaJaCanceladaException;
+import com.sisvendas.exception.VendaNaoEncontradaException;
 import com.sisvendas.model.EnderecoEntrega;
+import com.sisvendas.model.Estorno;
 import com.sisvendas.model.ItemVenda;
 import com.sisvendas.model.Produto;
 import com.sisvendas.model.TipoVenda;
 import com.sisvendas.model.Venda;
 import com.sisvendas.repository.ProdutoRepository;
 import com.sisvendas.repository.VendaRepository;
-import com.sisvendas.service.dto.ResumoPorProduto;
+import com.sisvendas.service.dto.ManifestoEnvio;
+import com.sisvendas.service.dto.PrevisaoRuptura;
 import com.sisvendas.service.dto.ResumoVendas;
+import com.sisvendas.util.CacheIdempotencia;
+import com.sisvendas.util.ConflitoIdempotenciaException;
+import com.sisvendas.util.Internador;
 import com.sisvendas.util.Par;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 public class VendaService {
     private static final Logger LOGGER = Logger.getLogger(VendaService.class.getName());
+    static final int CAPACIDADE_IDEMPOTENCIA_PADRAO = 100_000;
+    static final Duration VALIDADE_IDEMPOTENCIA_PADRAO = Duration.ofMinutes(15);
+    private static final Duration JANELA_PREVISAO_RUPTURA = Duration.ofHours(24);
 
     private final ProdutoRepository produtoRepository;
     private final VendaRepository vendaRepository;
     private final Object estoqueLock = new Object();
+    private final Internador<EnderecoEntrega> enderecos = new Internador<>();
+    private final IndiceEntregas indiceEntregas = new IndiceEntregas();
+    private final CacheIdempotencia<Venda> idempotencia;
+    private final PrevisorRuptura previsorRuptura = new PrevisorRuptura(JANELA_PREVISAO_RUPTURA);
+    private final AcumuladorResumoVendas resumo = new AcumuladorResumoVendas();
+    // Instante da saída no relógio do previsor, por item debitado aqui (acesso sob estoqueLock). Chaves fracas: a
+    // entrada some com a venda. Itens vindos de um repositório já existente não estão aqui e não mexem na taxa.
+    private final Map<ItemVenda, Long> saidaPrevisaoPorItem = new WeakHashMap<>();
 
     public VendaService(ProdutoRepository produtoRepository, VendaRepository vendaRepository) {
+        this(produtoRepository, vendaRepository,
+                new CacheIdempotencia<>(CAPACIDADE_IDEMPOTENCIA_PADRAO, VALIDADE_IDEMPOTENCIA_PADRAO));
+    }
+
+    public VendaService(ProdutoRepository produtoRepository,
+                        VendaRepository vendaRepository,
+                        CacheIdempotencia<Venda> idempotencia) {
+        this(produtoRepository, vendaRepository,
+                Optional.of(Objects.requireNonNull(idempotencia, "idempotencia é obrigatório")));
+    }
+
+    // Sem cache de idempotência: para as partições do VendaServiceParticionado, que deduplicam antes.
+    static VendaService semIdempotencia(ProdutoRepository produtoRepository, VendaRepository vendaRepository) {
+        return new VendaService(produtoRepository, vendaRepository, Optional.empty());
+    }
+
+    private VendaService(ProdutoRepository produtoRepository,
+                         VendaRepository vendaRepository,
+                         Optional<CacheIdempotencia<Venda>> idempotencia) {
         this.produtoRepository = Objects.requireNonNull(produtoRepository, "produtoRepository é obrigatório");
         this.vendaRepository = Objects.requireNonNull(vendaRepository, "vendaRepository é obrigatório");
+        this.idempotencia = idempotencia.orElse(null);
+        for (Venda venda : vendaRepository.listarTodas()) {
+            resumo.adicionar(venda);
+            if (vendaRepository.buscarEstornoDaVenda(venda.getId()).isEmpty()
+                    && !vendaRepository.foiEnviada(venda.getId())) {
+                indiceEntregas.indexar(venda);
+            }
+        }
+        vendaRepository.listarEstornos().forEach(e -> resumo.subtrair(e.getVenda()));
+    }
+
+    public Venda registrarVenda(String chaveIdempotencia,
+                                TipoVenda tipo,
+                                List<Par<String, Integer>> itensSolicitados,
+                                Optional<EnderecoEntrega> enderecoEntrega) {
+        if (chaveIdempotencia == null || chaveIdempotencia.isBlank()) {
+            return registrarVenda(tipo, itensSolicitados, enderecoEntrega);
+        }
+        if (idempotencia == null) {
+            throw new IllegalStateException("serviço sem cache de idempotência");
+        }
+        return executarUmaVez(idempotencia, chaveIdempotencia, tipo, itensSolicitados, enderecoEntrega,
+                () -> registrarVenda(tipo, itensSolicitados, enderecoEntrega));
+    }
+
+    static Venda executarUmaVez(CacheIdempotencia<Venda> idempotencia,
+                                String chave,
+                                TipoVenda tipo,
+                                List<Par<String, Integer>> itensSolicitados,
+                                Optional<EnderecoEntrega> enderecoEntrega,
+                                Supplier<Venda> registro) {
+        validarSolicitacao(tipo, itensSolicitados, enderecoEntrega);
+        try {
+            return idempotencia.executar(chave, assinatura(tipo, itensSolicitados, enderecoEntrega), registro);
+        } catch (ConflitoIdempotenciaException e) {
+            throw new ValidacaoVendaException("chave de idempotência já usada em outra venda: " + chave);
+        }
+    }
+
+    // Identifica o pedido para o cache de idempotência: itens somados por código, sem depender da ordem.
+    private static AssinaturaVenda assinatura(TipoVenda tipo,
+                                              List<Par<String, Integer>> itensSolicitados,
+                                              Optional<EnderecoEntrega> enderecoEntrega) {
+        Map<String, Integer> itens = new HashMap<>();
+        for (Par<String, Integer> par : itensSolicitados) {
+            itens.merge(par.primeiro(), par.segundo(), Integer::sum);
+        }
+        return new AssinaturaVenda(tipo, itens,
+                tipo == TipoVenda.WEB ? enderecoEntrega.orElse(null) : null);
     }
 
     public Venda registrarVenda(TipoVenda tipo,
                                 List<Par<String, Integer>> itensSolicitados,
                                 Optional<EnderecoEntrega> enderecoEntrega) {
+        validarSolicitacao(tipo, itensSolicitados, enderecoEntrega);
+        List<ItemVenda> itensDaVenda = debitarItens(itensSolicitados);
+        return registrarVendaDebitada(tipo, itensDaVenda, enderecoEntrega);
+    }
+
+    static void validarSolicitacao(TipoVenda tipo,
+                                   List<Par<String, Integer>> itensSolicitados,
+                                   Optional<EnderecoEntrega> enderecoEntrega) {
         if (tipo == null) {
             throw new ValidacaoVendaException("tipo de venda é obrigatório");
         }
@@ -51,7 +150,9 @@ public class VendaService {
         if (tipo == TipoVenda.WEB && (enderecoEntrega == null || enderecoEntrega.isEmpty())) {
             throw new ValidacaoVendaException("endereço é obrigatório para vendas WEB");
         }
+    }
 
+    List<ItemVenda> debitarItens(List<Par<String, Integer>> itensSolicitados) {
         Map<Produto, Integer> produtosEQuantidades = new LinkedHashMap<>();
         for (Par<String, Integer> par : itensSolicitados) {
             Produto produto = produtoRepository.buscarPorCodigo(par.primeiro())
@@ -80,24 +181,150 @@ public class VendaService {
                     throw new EstoqueInsuficienteException(p.getCodigo(), qtd, p.getQuantidade());
                 }
                 produtoRepository.atualizar(p);
-                itensDaVenda.add(new ItemVenda(p, qtd));
+                long instante = previsorRuptura.registrarSaida(p.getCodigo(), qtd, p.getQuantidade());
+                ItemVenda item = new ItemVenda(p, qtd);
+                saidaPrevisaoPorItem.put(item, instante);
+                itensDaVenda.add(item);
+            }
+        }
+        return itensDaVenda;
+    }
+
+    void devolverItens(List<ItemVenda> itens) {
+        synchronized (estoqueLock) {
+            for (ItemVenda item : itens) {
+                Produto p = produtoRepository.buscarPorCodigo(item.getProduto().getCodigo()).orElse(item.getProduto());
+                p.adicionarQuantidade(item.getQuantidade());
+                produtoRepository.atualizar(p);
+                Long instanteSaida = saidaPrevisaoPorItem.remove(item);
+                if (instanteSaida != null) {
+                    previsorRuptura.registrarDevolucao(p.getCodigo(), item.getQuantidade(), instanteSaida,
+                            p.getQuantidade());
+                } else {
+                    previsorRuptura.atualizarEstoque(p.getCodigo(), p.getQuantidade());
+                }
             }
         }
+    }
 
+    Venda registrarVendaDebitada(TipoVenda tipo,
+                                 List<ItemVenda> itensDaVenda,
+                                 Optional<EnderecoEntrega> enderecoEntrega) {
         Venda venda = Venda.builder()
                 .id(UUID.randomUUID().toString())
                 .dataHora(LocalDateTime.now())
                 .tipo(tipo)
                 .itens(itensDaVenda)
-                .enderecoEntrega(tipo == TipoVenda.WEB ? enderecoEntrega : Optional.empty())
+                .enderecoEntrega(tipo == TipoVenda.WEB ? enderecoEntrega.map(enderecos::internar) : Optional.empty())
                 .build();
 
         vendaRepository.salvar(venda);
+        resumo.adicionar(venda);
+        indiceEntregas.indexar(venda);
+        // Um cancelamento entre salvar e indexar não encontra a venda no índice; quem indexa desfaz.
+        if (vendaRepository.buscarEstornoDaVenda(venda.getId()).isPresent()) {
+            indiceEntregas.remover(venda.getId());
+        }
         LOGGER.log(Level.INFO, "Venda registrada com sucesso: id={0}, itens={1}, total={2}",
                 new Object[]{venda.getId(), venda.getItens().size(), venda.getTotal()});
         return venda;
     }
 
+    public Estorno cancelarVenda(String vendaId) {
+        if (vendaId == null || vendaId.isBlank()) {
+            throw new ValidacaoVendaException("id da venda é obrigatório");
+        }
+        Venda venda = vendaRepository.buscarPorId(vendaId)
+                .orElseThrow(() -> new VendaNaoEncontradaException(vendaId));
+        return estornar(venda, venda.getItens());
+    }
+
+    Estorno estornar(Venda venda, List<ItemVenda> itensADevolver) {
+        Estorno estorno = new Estorno(UUID.randomUUID().toString(), venda, LocalDateTime.now());
+        synchronized (estoqueLock) {
+            if (!vendaRepository.registrarEstorno(estorno)) {
+                throw new VendaJaCanceladaException(venda.getId());
+            }
+            devolverItens(itensADevolver);
+        }
+        resumo.subtrair(venda);
+        indiceEntregas.remover(venda.getId());
+        LOGGER.log(Level.INFO, "Venda cancelada: id={0}, estorno={1}, total={2}",
+                new Object[]{venda.getId(), estorno.getId(), venda.getTotal()});
+        return estorno;
+    }
+
+    public Optional<Produto> buscarProduto(String codigo) {
+        return produtoRepository.buscarPorCodigo(codigo);
+    }
+
+    public Optional<Venda> buscarVenda(String vendaId) {
+        return vendaRepository.buscarPorId(vendaId);
+    }
+
+    public List<Estorno> listarEstornos() {
+        return vendaRepository.listarEstornos();
+    }
+
+    public void salvarProdutos(List<Produto> produtos) {
+        Objects.requireNonNull(produtos, "produtos é obrigatório");
+        List<Produto> novos = new ArrayList<>();
+        synchronized (estoqueLock) {
+            // Produtos existentes são atualizados no lugar: vendas em andamento mantêm a mesma referência.
+            for (Produto produto : produtos) {
+                Optional<Produto> existente = produtoRepository.buscarPorCodigo(produto.getCodigo());
+                if (existente.isPresent()) {
+                    Produto p = existente.get();
+                    p.setNome(produto.getNome());
+                    p.setPreco(produto.getPreco());
+                    produtoRepository.atualizar(p);
+                } else {
+                    novos.add(produto);
+                }
+            }
+            produtoRepository.salvarTodos(novos);
+        }
+    }
+
+    public void reporEstoque(List<Par<String, Integer>> entradas) {
+        if (entradas == null || entradas.isEmpty()) {
+            throw new IllegalArgumentException("deve haver ao menos 1 entrada");
+        }
+        Map<Produto, Integer> produtosEQuantidades = new LinkedHashMap<>();
+        for (Par<String, Integer> par : entradas) {
+            if (par == null || par.primeiro() == null || par.primeiro().isBlank()) {
+                throw new IllegalArgumentException("código do produto é obrigatório");
+            }
+            if (par.segundo() == null || par.segundo() < 1) {
+                throw new IllegalArgumentException("quantidade de entrada deve ser positiva");
+            }
+            Produto produto = produtoRepository.buscarPorCodigo(par.primeiro())
+                    .orElseThrow(() -> new ProdutoNaoEncontradoException(par.primeiro()));
+            try {
+                produtosEQuantidades.merge(produto, par.segundo(), Math::addExact);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("quantidade de entrada excede o limite para " + par.primeiro());
+            }
+        }
+
+        synchronized (estoqueLock) {
+            for (Map.Entry<Produto, Integer> entry : produtosEQuantidades.entrySet()) {
+                Produto p = entry.getKey();
+                try {
+                    Math.addExact(p.getQuantidade(), entry.getValue());
+                } catch (ArithmeticException e) {
+                    throw new IllegalArgumentException("estoque do produto " + p.getCodigo() + " excederia o limite");
+                }
+            }
+            for (Map.Entry<Produto, Integer> entry : produtosEQuantidades.entrySet()) {
+                Produto p = entry.getKey();
+                p.adicionarQuantidade(entry.getValue());
+                produtoRepository.atualizar(p);
+                previsorRuptura.atualizarEstoque(p.getCodigo(), p.getQuantidade());
+            }
+        }
+    }
+
     public List<Venda> listarVendas() {
         return vendaRepository.listarTodas().stream()
                 .sorted(Comparator.comparing(Venda::getDataHora).reversed())
@@ -105,34 +332,65 @@ public class VendaService {
     }
 
     public ResumoVendas listarResumoVendas() {
-        List<Venda> vendas = vendaRepository.listarTodas();
-        int totalItens = vendas.stream()
-                .flatMap(v -> v.getItens().stream())
-                .mapToInt(ItemVenda::getQuantidade)
-                .sum();
-        double totalVendido = vendas.stream()
-                .mapToDouble(Venda::getTotal)
-                .sum();
-
-        Map<String, ResumoPorProduto> agregados = new HashMap<>();
-        for (Venda v : vendas) {
-            for (ItemVenda item : v.getItens()) {
-                String codigo = item.getProduto().getCodigo();
-                String nome = item.getProduto().getNome();
-                agregados.merge(codigo,
-                        new ResumoPorProduto(codigo, nome, item.getQuantidade(), item.getSubtotal()),
-                        (oldVal, newVal) -> new ResumoPorProduto(
-                                oldVal.codigo(),
-                                oldVal.nome(),
-                                oldVal.quantidadeVendida() + newVal.quantidadeVendida(),
-                                oldVal.valorTotalProduto() + newVal.valorTotalProduto()
-                        ));
+        return resumo.resumo();
+    }
+
+    public List<Venda> listarEntregasPendentesPorUf(String uf) {
+        return indiceEntregas.pendentesPorUf(uf);
+    }
+
+    public List<Venda> listarEntregasPendentesPorCep(String prefixoCep) {
+        return indiceEntregas.pendentesPorPrefixoCep(prefixoCep);
+    }
+
+    public List<Venda> listarEntregasPendentesPorFaixaCep(String cepInicial, String cepFinal) {
+        return indiceEntregas.pendentesPorFaixaCep(cepInicial, cepFinal);
+    }
+
+    // Só leitura: as vendas continuam pendentes até confirmarEnvio, então um manifesto perdido pode ser gerado de novo.
+    public ManifestoEnvio gerarManifestoEnvio(String uf) {
+        ManifestoEnvio manifesto = indiceEntregas.gerarManifesto(uf);
+        LOGGER.log(Level.INFO, "Manifesto de envio gerado: uf={0}, vendas={1}",
+                new Object[]{manifesto.uf(), manifesto.vendas().size()});
+        return manifesto;
+    }
+
+    // Grava o envio no repositório e tira as vendas das pendentes. O manifesto devolvido traz só as vendas
+    // confirmadas por esta chamada: já enviadas, canceladas ou de outro repositório ficam de fora.
+    public ManifestoEnvio confirmarEnvio(ManifestoEnvio manifesto) {
+        Objects.requireNonNull(manifesto, "manifesto é obrigatório");
+        List<Venda> confirmadas = new ArrayList<>(manifesto.vendas().size());
+        for (Venda venda : manifesto.vendas()) {
+            String id = venda.getId();
+            // Mesmo lock do estorno: uma venda não é cancelada e enviada ao mesmo tempo.
+            synchronized (estoqueLock) {
+                if (vendaRepository.buscarPorId(id).isEmpty()
+                        || vendaRepository.buscarEstornoDaVenda(id).isPresent()
+                        || !vendaRepository.registrarEnvio(id)) {
+                    continue;
+                }
             }
+            indiceEntregas.remover(id);
+            confirmadas.add(venda);
         }
+        LOGGER.log(Level.INFO, "Envio confirmado: uf={0}, vendas={1}",
+                new Object[]{manifesto.uf(), confirmadas.size()});
+        return new ManifestoEnvio(manifesto.uf(), manifesto.geradoEm(), List.copyOf(confirmadas));
+    }
+
+    public Optional<Duration> tempoAteRuptura(String codigo) {
+        return previsorRuptura.tempoAteRuptura(codigo);
+    }
+
+    public List<PrevisaoRuptura> listarProdutosEmRisco(Duration horizonte) {
+        return previsorRuptura.produtosAbaixoDeCobertura(horizonte);
+    }
 
-        List<ResumoPorProduto> porProduto = new ArrayList<>(agregados.values());
-        porProduto.sort(Comparator.comparingInt(ResumoPorProduto::quantidadeVendida).reversed());
-        return new ResumoVendas(totalItens, totalVendido, porProduto);
+    public ScheduledFuture<?> agendarAlertaRuptura(ScheduledExecutorService agendador,
+                                                   Duration horizonte,
+                                                   Duration periodo,
+                                                   Consumer<List<PrevisaoRuptura>> alerta) {
+        return previsorRuptura.agendarAlertas(agendador, horizonte, periodo, alerta);
     }
 
     public java.util.List<com.sisvendas.model.Produto> listarEstoque() {
@@ -140,6 +398,6 @@ public class VendaService {
                 .sorted(java.util.Comparator.comparing(com.sisvendas.model.Produto::getNome))
                 .collect(java.util.stream.Collectors.toList());
     }
-}
-
 
+    private record AssinaturaVenda(TipoVenda tipo, Map<String, Integer> itens, EnderecoEntrega endereco) { }
+}
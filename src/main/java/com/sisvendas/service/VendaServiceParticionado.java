@@ -0,0 +1,422 @@
+package com.sisvendas.service;
+
+import com.sisvendas.exception.ValidacaoVendaException;
+import com.sisvendas.exception.VendaNaoEncontradaException;
+import com.sisvendas.model.EnderecoEntrega;
+import com.sisvendas.model.Estorno;
+import com.sisvendas.model.ItemVenda;
+import com.sisvendas.model.Produto;
+import com.sisvendas.model.TipoVenda;
+import com.sisvendas.model.Venda;
+import com.sisvendas.repository.ProdutoRepository;
+import com.sisvendas.repository.VendaRepository;
+import com.sisvendas.service.dto.ManifestoEnvio;
+import com.sisvendas.service.dto.PrevisaoRuptura;
+import com.sisvendas.service.dto.ResumoPorProduto;
+import com.sisvendas.service.dto.ResumoVendas;
+import com.sisvendas.util.CacheIdempotencia;
+import com.sisvendas.util.Par;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class VendaServiceParticionado implements AutoCloseable {
+    private final List<Particao> particoes;
+    private final CacheIdempotencia<Venda> idempotencia;
+
+    public VendaServiceParticionado(int numeroParticoes,
+                                    Supplier<? extends ProdutoRepository> produtoRepositories,
+                                    Supplier<? extends VendaRepository> vendaRepositories) {
+        this(numeroParticoes, produtoRepositories, vendaRepositories, new CacheIdempotencia<>(
+                VendaService.CAPACIDADE_IDEMPOTENCIA_PADRAO, VendaService.VALIDADE_IDEMPOTENCIA_PADRAO));
+    }
+
+    public VendaServiceParticionado(int numeroParticoes,
+                                    Supplier<? extends ProdutoRepository> produtoRepositories,
+                                    Supplier<? extends VendaRepository> vendaRepositories,
+                                    CacheIdempotencia<Venda> idempotencia) {
+        this.idempotencia = Objects.requireNonNull(idempotencia, "idempotencia é obrigatório");
+        if (numeroParticoes < 1) {
+            throw new IllegalArgumentException("número de partições deve ser >= 1");
+        }
+        Objects.requireNonNull(produtoRepositories, "produtoRepositories é obrigatório");
+        Objects.requireNonNull(vendaRepositories, "vendaRepositories é obrigatório");
+        List<Particao> criadas = new ArrayList<>(numeroParticoes);
+        for (int i = 0; i < numeroParticoes; i++) {
+            criadas.add(new Particao(i, produtoRepositories.get(), vendaRepositories.get()));
+        }
+        this.particoes = List.copyOf(criadas);
+    }
+
+    public int getNumeroParticoes() {
+        return particoes.size();
+    }
+
+    public void salvarProdutos(List<Produto> produtos) {
+        Objects.requireNonNull(produtos, "produtos é obrigatório");
+        Map<Particao, List<Produto>> porParticao = new LinkedHashMap<>();
+        for (Produto produto : produtos) {
+            porParticao.computeIfAbsent(particaoDe(produto.getCodigo()), p -> new ArrayList<>()).add(produto);
+        }
+        List<Future<Object>> pendentes = new ArrayList<>();
+        porParticao.forEach((particao, lote) -> pendentes.add(particao.submeter(() -> {
+            particao.service.salvarProdutos(lote);
+            return null;
+        })));
+        pendentes.forEach(VendaServiceParticionado::aguardar);
+    }
+
+    public void reporEstoque(List<Par<String, Integer>> entradas) {
+        if (entradas == null || entradas.isEmpty()) {
+            throw new IllegalArgumentException("deve haver ao menos 1 entrada");
+        }
+        List<Future<Object>> pendentes = new ArrayList<>();
+        agrupar(entradas).forEach((particao, lote) -> pendentes.add(particao.submeter(() -> {
+            particao.service.reporEstoque(lote);
+            return null;
+        })));
+        pendentes.forEach(VendaServiceParticionado::aguardar);
+    }
+
+    public Venda registrarVenda(String chaveIdempotencia,
+                                TipoVenda tipo,
+                                List<Par<String, Integer>> itensSolicitados,
+                                Optional<EnderecoEntrega> enderecoEntrega) {
+        if (chaveIdempotencia == null || chaveIdempotencia.isBlank()) {
+            return registrarVenda(tipo, itensSolicitados, enderecoEntrega);
+        }
+        return VendaService.executarUmaVez(idempotencia, chaveIdempotencia, tipo, itensSolicitados, enderecoEntrega,
+                () -> registrarVenda(tipo, itensSolicitados, enderecoEntrega));
+    }
+
+    public Venda registrarVenda(TipoVenda tipo,
+                                List<Par<String, Integer>> itensSolicitados,
+                                Optional<EnderecoEntrega> enderecoEntrega) {
+        VendaService.validarSolicitacao(tipo, itensSolicitados, enderecoEntrega);
+        Map<Particao, List<Par<String, Integer>>> porParticao = agrupar(itensSolicitados);
+        if (porParticao.size() == 1) {
+            Particao particao = porParticao.keySet().iterator().next();
+            return aguardar(particao.submeter(
+                    () -> particao.service.registrarVenda(tipo, itensSolicitados, enderecoEntrega)));
+        }
+        return registrarVendaMultiParticao(tipo, itensSolicitados, enderecoEntrega, porParticao);
+    }
+
+    private Venda registrarVendaMultiParticao(TipoVenda tipo,
+                                              List<Par<String, Integer>> itensSolicitados,
+                                              Optional<EnderecoEntrega> enderecoEntrega,
+                                              Map<Particao, List<Par<String, Integer>>> porParticao) {
+        // Fase 1: cada partição reserva (debita) os seus itens; qualquer falha devolve o que já foi reservado.
+        Map<Particao, Future<List<ItemVenda>>> reservas = new LinkedHashMap<>();
+        RuntimeException falha = null;
+        for (Map.Entry<Particao, List<Par<String, Integer>>> lote : porParticao.entrySet()) {
+            Particao particao = lote.getKey();
+            try {
+                reservas.put(particao, particao.submeter(() -> particao.service.debitarItens(lote.getValue())));
+            } catch (RuntimeException e) {
+                falha = e;
+                break;
+            }
+        }
+
+        // Espera todas as reservas enviadas, mesmo após uma falha: só assim as que deram certo são devolvidas.
+        Map<Particao, List<ItemVenda>> reservados = new LinkedHashMap<>();
+        for (Map.Entry<Particao, Future<List<ItemVenda>>> reserva : reservas.entrySet()) {
+            try {
+                reservados.put(reserva.getKey(), aguardar(reserva.getValue()));
+            } catch (RuntimeException e) {
+                if (falha == null) {
+                    falha = e;
+                }
+            }
+        }
+        if (falha != null) {
+            devolver(reservados);
+            throw falha;
+        }
+
+        // Fase 2: a venda completa é gravada na partição do primeiro item.
+        Map<String, ItemVenda> itensPorCodigo = new HashMap<>();
+        reservados.values().forEach(itens -> itens.forEach(i -> itensPorCodigo.put(i.getProduto().getCodigo(), i)));
+        List<ItemVenda> itensDaVenda = new ArrayList<>(itensPorCodigo.size());
+        for (Par<String, Integer> par : itensSolicitados) {
+            ItemVenda item = itensPorCodigo.remove(par.primeiro());
+            if (item != null) {
+                itensDaVenda.add(item);
+            }
+        }
+        Particao principal = particaoDe(itensSolicitados.get(0).primeiro());
+        try {
+            return aguardar(principal.submeter(
+                    () -> principal.service.registrarVendaDebitada(tipo, itensDaVenda, enderecoEntrega)));
+        } catch (RuntimeException e) {
+            devolver(reservados);
+            throw e;
+        }
+    }
+
+    public Estorno cancelarVenda(String vendaId) {
+        if (vendaId == null || vendaId.isBlank()) {
+            throw new ValidacaoVendaException("id da venda é obrigatório");
+        }
+        List<Optional<Venda>> encontradas = coletar(s -> s.buscarVenda(vendaId));
+        Particao principal = null;
+        Venda venda = null;
+        for (int i = 0; i < encontradas.size() && venda == null; i++) {
+            if (encontradas.get(i).isPresent()) {
+                principal = particoes.get(i);
+                venda = encontradas.get(i).get();
+            }
+        }
+        if (venda == null) {
+            throw new VendaNaoEncontradaException(vendaId);
+        }
+
+        // A partição que gravou a venda registra o estorno (e barra o cancelamento em dobro);
+        // as demais só devolvem o estoque dos seus itens.
+        Map<Particao, List<ItemVenda>> itensPorParticao = new LinkedHashMap<>();
+        for (ItemVenda item : venda.getItens()) {
+            itensPorParticao.computeIfAbsent(particaoDe(item.getProduto().getCodigo()), p -> new ArrayList<>()).add(item);
+        }
+        Particao daVenda = principal;
+        Venda cancelada = venda;
+        List<ItemVenda> locais = itensPorParticao.getOrDefault(daVenda, List.of());
+        Estorno estorno = aguardar(daVenda.submeter(() -> daVenda.service.estornar(cancelada, locais)));
+        itensPorParticao.remove(daVenda);
+        devolver(itensPorParticao);
+        return estorno;
+    }
+
+    public List<Estorno> listarEstornos() {
+        List<Estorno> estornos = new ArrayList<>();
+        for (List<Estorno> daParticao : coletar(VendaService::listarEstornos)) {
+            estornos.addAll(daParticao);
+        }
+        estornos.sort(Comparator.comparing(Estorno::getDataHora).reversed());
+        return estornos;
+    }
+
+    public List<Venda> listarVendas() {
+        List<Venda> vendas = new ArrayList<>();
+        for (List<Venda> daParticao : coletar(VendaService::listarVendas)) {
+            vendas.addAll(daParticao);
+        }
+        vendas.sort(Comparator.comparing(Venda::getDataHora).reversed());
+        return vendas;
+    }
+
+    public ResumoVendas listarResumoVendas() {
+        int totalItens = 0;
+        double totalVendido = 0;
+        Map<String, ResumoPorProduto> agregados = new HashMap<>();
+        for (ResumoVendas resumo : coletar(VendaService::listarResumoVendas)) {
+            totalItens += resumo.totalItensVendidos();
+            totalVendido += resumo.valorTotalVendido();
+            for (ResumoPorProduto rpp : resumo.porProduto()) {
+                agregados.merge(rpp.codigo(), rpp, (oldVal, newVal) -> new ResumoPorProduto(
+                        oldVal.codigo(),
+                        oldVal.nome(),
+                        oldVal.quantidadeVendida() + newVal.quantidadeVendida(),
+                        oldVal.valorTotalProduto() + newVal.valorTotalProduto()
+                ));
+            }
+        }
+        List<ResumoPorProduto> porProduto = new ArrayList<>(agregados.values());
+        porProduto.sort(Comparator.comparingInt(ResumoPorProduto::quantidadeVendida).reversed());
+        return new ResumoVendas(totalItens, totalVendido, porProduto);
+    }
+
+    public List<Produto> listarEstoque() {
+        List<Produto> estoque = new ArrayList<>();
+        for (List<Produto> daParticao : coletar(VendaService::listarEstoque)) {
+            estoque.addAll(daParticao);
+        }
+        estoque.sort(Comparator.comparing(Produto::getNome));
+        return estoque;
+    }
+
+    // Vendas WEB ficam indexadas na partição que as gravou (a do primeiro item), por isso as consultas de entrega
+    // sempre percorrem todas as partições.
+    public List<Venda> listarEntregasPendentesPorUf(String uf) {
+        return juntarEntregas(coletar(s -> s.listarEntregasPendentesPorUf(uf)));
+    }
+
+    public List<Venda> listarEntregasPendentesPorCep(String prefixoCep) {
+        return juntarEntregas(coletar(s -> s.listarEntregasPendentesPorCep(prefixoCep)));
+    }
+
+    public List<Venda> listarEntregasPendentesPorFaixaCep(String cepInicial, String cepFinal) {
+        return juntarEntregas(coletar(s -> s.listarEntregasPendentesPorFaixaCep(cepInicial, cepFinal)));
+    }
+
+    public ManifestoEnvio gerarManifestoEnvio(String uf) {
+        List<List<Venda>> despachadas = new ArrayList<>(particoes.size());
+        for (ManifestoEnvio manifesto : coletar(s -> s.gerarManifestoEnvio(uf))) {
+            despachadas.add(manifesto.vendas());
+        }
+        return new ManifestoEnvio(IndiceEntregas.normalizarUf(uf), LocalDateTime.now(),
+                List.copyOf(juntarEntregas(despachadas)));
+    }
+
+    public ManifestoEnvio confirmarEnvio(ManifestoEnvio manifesto) {
+        Objects.requireNonNull(manifesto, "manifesto é obrigatório");
+        List<List<Venda>> confirmadas = new ArrayList<>(particoes.size());
+        for (ManifestoEnvio daParticao : coletar(s -> s.confirmarEnvio(manifesto))) {
+            confirmadas.add(daParticao.vendas());
+        }
+        return new ManifestoEnvio(manifesto.uf(), manifesto.geradoEm(), List.copyOf(juntarEntregas(confirmadas)));
+    }
+
+    public Optional<Duration> tempoAteRuptura(String codigo) {
+        Objects.requireNonNull(codigo, "código do produto é obrigatório");
+        Particao particao = particaoDe(codigo);
+        return aguardar(particao.submeter(() -> particao.service.tempoAteRuptura(codigo)));
+    }
+
+    public List<PrevisaoRuptura> listarProdutosEmRisco(Duration horizonte) {
+        List<PrevisaoRuptura> emRisco = new ArrayList<>();
+        for (List<PrevisaoRuptura> daParticao : coletar(s -> s.listarProdutosEmRisco(horizonte))) {
+            emRisco.addAll(daParticao);
+        }
+        emRisco.sort(Comparator.comparing(PrevisaoRuptura::coberturaEstimada));
+        return emRisco;
+    }
+
+    public ScheduledFuture<?> agendarAlertaRuptura(ScheduledExecutorService agendador,
+                                                   Duration horizonte,
+                                                   Duration periodo,
+                                                   Consumer<List<PrevisaoRuptura>> alerta) {
+        Objects.requireNonNull(agendador, "agendador é obrigatório");
+        Objects.requireNonNull(horizonte, "horizonte é obrigatório");
+        Objects.requireNonNull(alerta, "alerta é obrigatório");
+        return PrevisorRuptura.agendarAlertas(agendador, periodo, () -> listarProdutosEmRisco(horizonte), alerta);
+    }
+
+    @Override
+    public void close() {
+        particoes.forEach(p -> p.executor.shutdown());
+        try {
+            for (Particao particao : particoes) {
+                if (!particao.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    particao.executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            particoes.forEach(p -> p.executor.shutdownNow());
+        }
+    }
+
+    private Particao particaoDe(String codigo) {
+        return particoes.get(Math.floorMod(codigo.hashCode(), particoes.size()));
+    }
+
+    private Map<Particao, List<Par<String, Integer>>> agrupar(List<Par<String, Integer>> itens) {
+        // Ordem fixa por índice de partição, para que reservas concorrentes sejam enfileiradas sempre na mesma sequência.
+        Map<Integer, List<Par<String, Integer>>> porIndice = new TreeMap<>();
+        for (Par<String, Integer> par : itens) {
+            Objects.requireNonNull(par, "item é obrigatório");
+            Objects.requireNonNull(par.primeiro(), "código do produto é obrigatório");
+            porIndice.computeIfAbsent(particaoDe(par.primeiro()).indice, i -> new ArrayList<>()).add(par);
+        }
+        Map<Particao, List<Par<String, Integer>>> porParticao = new LinkedHashMap<>();
+        porIndice.forEach((indice, lote) -> porParticao.put(particoes.get(indice), lote));
+        return porParticao;
+    }
+
+    private static List<Venda> juntarEntregas(List<List<Venda>> porParticao) {
+        List<Venda> vendas = new ArrayList<>();
+        porParticao.forEach(vendas::addAll);
+        vendas.sort(IndiceEntregas.ORDEM_CEP);
+        return vendas;
+    }
+
+    private void devolver(Map<Particao, List<ItemVenda>> reservados) {
+        List<Future<Object>> pendentes = new ArrayList<>();
+        reservados.forEach((particao, itens) -> pendentes.add(particao.submeter(() -> {
+            particao.service.devolverItens(itens);
+            return null;
+        })));
+        pendentes.forEach(VendaServiceParticionado::aguardar);
+    }
+
+    private <T> List<T> coletar(Function<VendaService, T> consulta) {
+        List<Future<T>> pendentes = new ArrayList<>(particoes.size());
+        for (Particao particao : particoes) {
+            pendentes.add(particao.submeter(() -> consulta.apply(particao.service)));
+        }
+        List<T> resultados = new ArrayList<>(pendentes.size());
+        for (Future<T> pendente : pendentes) {
+            resultados.add(aguardar(pendente));
+        }
+        return resultados;
+    }
+
+    // Não desiste da espera por interrupção (o flag é restaurado no fim): a tarefa seguiria rodando na partição, e
+    // quem chamou não saberia se a reserva, a venda ou o estorno aconteceu. Assim, toda exceção que sai daqui é
+    // falha da própria tarefa, e só ela dispara compensação. As tarefas das partições são curtas.
+    private static <T> T aguardar(Future<T> futuro) {
+        boolean interrompida = false;
+        try {
+            while (true) {
+                try {
+                    return futuro.get();
+                } catch (InterruptedException e) {
+                    interrompida = true;
+                } catch (ExecutionException e) {
+                    Throwable causa = e.getCause();
+                    if (causa instanceof RuntimeException re) {
+                        throw re;
+                    }
+                    if (causa instanceof Error erro) {
+                        throw erro;
+                    }
+                    throw new IllegalStateException(causa);
+                }
+            }
+        } finally {
+            if (interrompida) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Particao {
+        private final int indice;
+        private final VendaService service;
+        private final ExecutorService executor;
+
+        Particao(int indice, ProdutoRepository produtoRepository, VendaRepository vendaRepository) {
+            this.indice = indice;
+            this.service = VendaService.semIdempotencia(produtoRepository, vendaRepository);
+            this.executor = Executors.newSingleThreadExecutor(tarefa -> {
+                Thread t = new Thread(tarefa, "venda-particao-" + indice);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        <T> Future<T> submeter(Callable<T> tarefa) {
+            return executor.submit(tarefa);
+        }
+    }
+}
@@ -0,0 +1,3 @@
+package com.sisvendas.service.dto;
+
+public record ErroImportacao(long linha, String conteudo, String motivo) { }
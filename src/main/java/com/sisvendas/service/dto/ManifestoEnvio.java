@@ -0,0 +1,8 @@
+package com.sisvendas.service.dto;
+
+import com.sisvendas.model.Venda;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record ManifestoEnvio(String uf, LocalDateTime geradoEm, List<Venda> vendas) { }
+
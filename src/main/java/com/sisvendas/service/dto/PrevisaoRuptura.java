@@ -0,0 +1,5 @@
+package com.sisvendas.service.dto;
+
+import java.time.Duration;
+
+public record PrevisaoRuptura(String codigo, int estoque, double vendasPorHora, Duration coberturaEstimada) { }
@@ -0,0 +1,3 @@
+package com.sisvendas.service.dto;
+
+public record ProgressoImportacao(long linhasProcessadas, long registrosAplicados, long linhasRejeitadas) { }
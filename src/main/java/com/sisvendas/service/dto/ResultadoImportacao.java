@@ -0,0 +1,10 @@
+package com.sisvendas.service.dto;
+
+import java.time.Duration;
+import java.util.List;
+
+public record ResultadoImportacao(long linhasProcessadas,
+                                  long registrosAplicados,
+                                  long linhasRejeitadas,
+                                  List<ErroImportacao> erros,
+                                  Duration duracao) { }
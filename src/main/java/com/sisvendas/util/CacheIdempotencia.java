@@ -0,0 +1,152 @@
+package com.sisvendas.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public final class CacheIdempotencia<T> {
+    private final int capacidade;
+    private final long validadeNanos;
+    private final LongSupplier relogioNanos;
+    private final ConcurrentMap<String, Entrada<T>> entradas = new ConcurrentHashMap<>();
+    private final Queue<Entrada<T>> ordemInsercao = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tamanhoFila = new AtomicInteger();
+
+    public CacheIdempotencia(int capacidade, Duration validade) {
+        this(capacidade, validade, System::nanoTime);
+    }
+
+    public CacheIdempotencia(int capacidade, Duration validade, LongSupplier relogioNanos) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("capacidade deve ser >= 1");
+        }
+        Objects.requireNonNull(validade, "validade é obrigatória");
+        if (validade.isNegative() || validade.isZero()) {
+            throw new IllegalArgumentException("validade deve ser positiva");
+        }
+        this.capacidade = capacidade;
+        this.validadeNanos = validade.toNanos();
+        this.relogioNanos = Objects.requireNonNull(relogioNanos, "relogioNanos é obrigatório");
+    }
+
+    // Executa a operação uma única vez por chave dentro da validade. Chamadas repetidas recebem o mesmo resultado;
+    // chamadas concorrentes esperam a primeira. Falhas não ficam guardadas: a próxima chamada executa de novo.
+    public T executar(String chave, Supplier<T> operacao) {
+        return executar(chave, null, operacao);
+    }
+
+    // assinatura identifica o pedido (comparada por equals): uma chave reaproveitada para um pedido diferente lança
+    // ConflitoIdempotenciaException em vez de devolver o resultado do outro pedido.
+    public T executar(String chave, Object assinatura, Supplier<T> operacao) {
+        Objects.requireNonNull(chave, "chave é obrigatória");
+        Objects.requireNonNull(operacao, "operacao é obrigatória");
+        while (true) {
+            long agora = relogioNanos.getAsLong();
+            Entrada<T> nova = new Entrada<>(chave, assinatura, agora);
+            Entrada<T> existente = entradas.putIfAbsent(chave, nova);
+            if (existente == null) {
+                ordemInsercao.add(nova);
+                tamanhoFila.incrementAndGet();
+                despejar(agora);
+                return executarPrimeira(nova, operacao);
+            }
+            if (existente.resultado.isDone() && existente.expirada(agora, validadeNanos)) {
+                entradas.remove(chave, existente);
+                continue;
+            }
+            if (!Objects.equals(existente.assinatura, assinatura)) {
+                throw new ConflitoIdempotenciaException(chave);
+            }
+            return aguardar(existente);
+        }
+    }
+
+    public int tamanho() {
+        return entradas.size();
+    }
+
+    private T executarPrimeira(Entrada<T> entrada, Supplier<T> operacao) {
+        try {
+            T valor = operacao.get();
+            entrada.resultado.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            entradas.remove(entrada.chave, entrada);
+            entrada.resultado.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private T aguardar(Entrada<T> entrada) {
+        try {
+            return entrada.resultado.join();
+        } catch (CompletionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException re) {
+                throw re;
+            }
+            if (causa instanceof Error erro) {
+                throw erro;
+            }
+            throw e;
+        }
+    }
+
+    // Percorre a fila da entrada mais antiga para a mais nova. Entradas mortas (falharam ou foram substituídas após
+    // expirar) saem sem contar; tentativas em andamento ficam, mas não impedem o despejo das que estão atrás delas.
+    private synchronized void despejar(long agora) {
+        Iterator<Entrada<T>> iterador = ordemInsercao.iterator();
+        while (iterador.hasNext()) {
+            Entrada<T> entrada = iterador.next();
+            if (entradas.get(entrada.chave) != entrada) {
+                iterador.remove();
+                tamanhoFila.decrementAndGet();
+                continue;
+            }
+            if (entradas.size() <= capacidade && !entrada.expirada(agora, validadeNanos)) {
+                break;
+            }
+            if (entrada.resultado.isDone()) {
+                iterador.remove();
+                tamanhoFila.decrementAndGet();
+                entradas.remove(entrada.chave, entrada);
+            }
+        }
+        if (tamanhoFila.get() > 2 * capacidade) {
+            // Mortas que ficaram atrás de entradas ainda válidas; sem isso a fila cresceria a cada falha.
+            ordemInsercao.removeIf(entrada -> {
+                boolean morta = entradas.get(entrada.chave) != entrada;
+                if (morta) {
+                    tamanhoFila.decrementAndGet();
+                }
+                return morta;
+            });
+        }
+    }
+
+    private static final class Entrada<T> {
+        private final String chave;
+        private final Object assinatura;
+        private final long criadaEm;
+        private final CompletableFuture<T> resultado = new CompletableFuture<>();
+
+        Entrada(String chave, Object assinatura, long criadaEm) {
+            this.chave = chave;
+            this.assinatura = assinatura;
+            this.criadaEm = criadaEm;
+        }
+
+        boolean expirada(long agora, long validadeNanos) {
+            return agora - criadaEm >= validadeNanos;
+        }
+    }
+}
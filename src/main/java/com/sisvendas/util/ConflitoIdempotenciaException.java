@@ -0,0 +1,7 @@
+package com.sisvendas.util;
+
+public class ConflitoIdempotenciaException extends RuntimeException {
+    public ConflitoIdempotenciaException(String chave) {
+        super("chave de idempotência já usada em outro pedido: " + chave);
+    }
+}
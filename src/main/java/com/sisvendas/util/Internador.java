@@ -0,0 +1,26 @@
+package com.sisvendas.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+// Chaves e valores fracos: uma instância sai do mapa assim que nada mais a referencia.
+public final class Internador<T> {
+    private final Map<T, WeakReference<T>> instancias = new WeakHashMap<>();
+
+    public synchronized T internar(T valor) {
+        Objects.requireNonNull(valor, "valor é obrigatório");
+        WeakReference<T> referencia = instancias.get(valor);
+        T existente = referencia != null ? referencia.get() : null;
+        if (existente != null) {
+            return existente;
+        }
+        instancias.put(valor, new WeakReference<>(valor));
+        return valor;
+    }
+
+    public synchronized int tamanho() {
+        return instancias.size();
+    }
+}
@@ -0,0 +1,160 @@
+package com.sisvendas.service;
+
+import com.sisvendas.model.Produto;
+import com.sisvendas.repository.memory.InMemoryProdutoRepository;
+import com.sisvendas.repository.memory.InMemoryVendaRepository;
+import com.sisvendas.service.dto.ProgressoImportacao;
+import com.sisvendas.service.dto.ResultadoImportacao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImportacaoServiceTest {
+    private InMemoryProdutoRepository produtoRepo;
+    private ImportacaoService importacao;
+
+    @BeforeEach
+    void setup() {
+        produtoRepo = new InMemoryProdutoRepository();
+        VendaService service = new VendaService(produtoRepo, new InMemoryVendaRepository());
+        importacao = new ImportacaoService(service, 4, 100);
+        produtoRepo.salvar(new Produto("001", "Caneta", 2.5, 10));
+    }
+
+    @Test
+    void deveImportarCatalogoAtualizandoExistentes() {
+        String csv = "codigo;nome;preco;quantidade\n"
+                + "001;Caneta Azul;3,00;999\n"
+                + "002;Caderno;15.0;50\n"
+                + "003;Borracha;1.75\n";
+
+        ResultadoImportacao resultado = importacao.importarCatalogo(new StringReader(csv), null);
+
+        assertEquals(3, resultado.registrosAplicados());
+        assertEquals(0, resultado.linhasRejeitadas());
+        Produto caneta = produtoRepo.buscarPorCodigo("001").get();
+        assertEquals("Caneta Azul", caneta.getNome());
+        assertEquals(3.0, caneta.getPreco(), 0.0001);
+        assertEquals(10, caneta.getQuantidade());
+        assertEquals(50, produtoRepo.buscarPorCodigo("002").get().getQuantidade());
+        assertEquals(0, produtoRepo.buscarPorCodigo("003").get().getQuantidade());
+    }
+
+    @Test
+    void deveReportarErrosPorLinha() {
+        String csv = "002;Caderno;15.0\n"
+                + "003;Borracha\n"
+                + "004;Lapis;-1\n"
+                + "\n"
+                + "005;Regua;abc\n";
+
+        ResultadoImportacao resultado = importacao.importarCatalogo(new StringReader(csv), null);
+
+        assertEquals(1, resultado.registrosAplicados());
+        assertEquals(3, resultado.linhasRejeitadas());
+        assertEquals(List.of(2L, 3L, 5L), resultado.erros().stream().map(e -> e.linha()).toList());
+        assertTrue(produtoRepo.buscarPorCodigo("004").isEmpty());
+    }
+
+    @Test
+    void deveAplicarReposicaoEmLotesParalelos() {
+        StringBuilder csv = new StringBuilder("codigo;quantidade\n");
+        for (int i = 0; i < 1_000; i++) {
+            csv.append("001;2\n");
+        }
+        csv.append("999;5\n");
+        List<ProgressoImportacao> progresso = new CopyOnWriteArrayList<>();
+
+        ResultadoImportacao resultado = importacao.importarReposicao(new StringReader(csv.toString()), progresso::add);
+
+        assertEquals(1_001, resultado.linhasProcessadas());
+        assertEquals(1_000, resultado.registrosAplicados());
+        assertEquals(1, resultado.linhasRejeitadas());
+        assertEquals(1_002, resultado.erros().get(0).linha());
+        assertEquals(10 + 2_000, produtoRepo.buscarPorCodigo("001").get().getQuantidade());
+        assertEquals(11, progresso.size());
+    }
+
+    @Test
+    void ultimaOcorrenciaDoArquivoPrevaleceEntreLotesParalelos() {
+        ImportacaoService porLinha = new ImportacaoService(
+                new VendaService(produtoRepo, new InMemoryVendaRepository()), 4, 1);
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            csv.append("010;Nome ").append(i).append(";1.0\n");
+        }
+
+        for (int rodada = 0; rodada < 20; rodada++) {
+            porLinha.importarCatalogo(new StringReader(csv.toString()), null);
+            assertEquals("Nome 49", produtoRepo.buscarPorCodigo("010").get().getNome());
+        }
+    }
+
+    @Test
+    void primeiraLinhaComCodigoParecidoComCabecalhoNaoEhDescartada() {
+        ResultadoImportacao resultado = importacao.importarCatalogo(
+                new StringReader("codigo-7;Etiqueta;0.5\n"), null);
+
+        assertEquals(1, resultado.registrosAplicados());
+        assertTrue(produtoRepo.buscarPorCodigo("codigo-7").isPresent());
+    }
+
+    @Test
+    void deveRejeitarReposicaoQueEstouraOEstoque() {
+        ResultadoImportacao resultado = importacao.importarReposicao(
+                new StringReader("001;2147483647\n001;5\n"), null);
+
+        assertEquals(1, resultado.registrosAplicados());
+        assertEquals(1, resultado.linhasRejeitadas());
+        assertEquals(1L, resultado.erros().get(0).linha());
+        assertEquals(15, produtoRepo.buscarPorCodigo("001").get().getQuantidade());
+    }
+
+    @Test
+    void falhaAoGravarLoteRejeitaCadaLinha() {
+        InMemoryProdutoRepository comFalha = new InMemoryProdutoRepository() {
+            @Override
+            public void salvarTodos(Collection<Produto> produtos) {
+                throw new IllegalStateException("banco indisponível");
+            }
+        };
+        ImportacaoService falhando = new ImportacaoService(
+                new VendaService(comFalha, new InMemoryVendaRepository()), 2, 100);
+        String csv = "002;Caderno;15.0\n003;Borracha;1.0\n\n004;Lapis;abc\n";
+
+        ResultadoImportacao resultado = falhando.importarCatalogo(new StringReader(csv), null);
+
+        assertEquals(3, resultado.linhasProcessadas());
+        assertEquals(0, resultado.registrosAplicados());
+        assertEquals(3, resultado.linhasRejeitadas());
+        assertEquals(List.of("002;Caderno;15.0", "003;Borracha;1.0", "004;Lapis;abc"),
+                resultado.erros().stream().map(e -> e.conteudo()).toList());
+    }
+
+    @Test
+    void errorAoGravarNaoTravaOsLotesSeguintes() {
+        InMemoryProdutoRepository comErro = new InMemoryProdutoRepository() {
+            @Override
+            public void salvarTodos(Collection<Produto> produtos) {
+                throw new LinkageError("driver indisponível");
+            }
+        };
+        ImportacaoService porLinha = new ImportacaoService(
+                new VendaService(comErro, new InMemoryVendaRepository()), 2, 1);
+        String csv = "002;Caderno;15.0\n003;Borracha;1.0\n004;Lapis;2.0\n";
+
+        ResultadoImportacao resultado = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> porLinha.importarCatalogo(new StringReader(csv), null));
+
+        assertEquals(3, resultado.linhasProcessadas());
+        assertEquals(0, resultado.registrosAplicados());
+        assertEquals(3, resultado.linhasRejeitadas());
+    }
+}
@@ -0,0 +1,66 @@
+package com.sisvendas.service;
+
+import com.sisvendas.service.dto.PrevisaoRuptura;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrevisorRupturaTest {
+    private final AtomicLong relogio = new AtomicLong();
+    private final PrevisorRuptura previsor = new PrevisorRuptura(Duration.ofHours(1), relogio::get);
+
+    @Test
+    void coberturaEhEstoqueDivididoPelaTaxa() {
+        previsor.registrarSaida("001", 10, 50);
+        // taxa = 10 / 1h de janela => 50 unidades cobrem 5 horas
+        assertEquals(5.0, horas(previsor.tempoAteRuptura("001").get()), 1e-6);
+        assertTrue(previsor.tempoAteRuptura("999").isEmpty());
+    }
+
+    @Test
+    void taxaDecaiComOTempoSemVendas() {
+        previsor.registrarSaida("001", 10, 50);
+        relogio.set(Duration.ofHours(1).toNanos());
+        assertEquals(5.0 * Math.E, horas(previsor.tempoAteRuptura("001").get()), 1e-6);
+    }
+
+    @Test
+    void listaProdutosAbaixoDoHorizonteEmOrdemDeCobertura() {
+        previsor.registrarSaida("001", 10, 50);
+        previsor.registrarSaida("002", 10, 10);
+        previsor.registrarSaida("003", 1, 1_000);
+        previsor.registrarSaida("004", 5, 0);
+
+        List<PrevisaoRuptura> emRisco = previsor.produtosAbaixoDeCobertura(Duration.ofHours(6));
+        assertEquals(List.of("004", "002", "001"), emRisco.stream().map(PrevisaoRuptura::codigo).toList());
+        assertEquals(10.0, emRisco.get(1).vendasPorHora(), 1e-6);
+
+        previsor.atualizarEstoque("002", 100);
+        assertEquals(List.of("004", "001"),
+                previsor.produtosAbaixoDeCobertura(Duration.ofHours(6)).stream().map(PrevisaoRuptura::codigo).toList());
+    }
+
+    @Test
+    void devolucaoRetiraAContribuicaoDaSaida() {
+        long primeira = previsor.registrarSaida("001", 10, 50);
+        relogio.set(Duration.ofHours(1).toNanos());
+        long segunda = previsor.registrarSaida("001", 20, 30);
+        relogio.set(Duration.ofHours(2).toNanos());
+
+        previsor.registrarDevolucao("001", 20, segunda, 50);
+        // sobra só a primeira saída, decaída por 2 janelas: taxa = 10/e² por hora
+        assertEquals(5.0 * Math.exp(2), horas(previsor.tempoAteRuptura("001").get()), 1e-6);
+
+        previsor.registrarDevolucao("001", 10, primeira, 60);
+        assertTrue(previsor.tempoAteRuptura("001").isEmpty());
+        assertTrue(previsor.produtosAbaixoDeCobertura(Duration.ofDays(365)).isEmpty());
+    }
+
+    private static double horas(Duration duracao) {
+        return duracao.toNanos() / 3_600_000_000_000.0;
+    }
+}
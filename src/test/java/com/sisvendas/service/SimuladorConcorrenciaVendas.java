@@ -0,0 +1,294 @@
+package com.sisvendas.service;
+
+import com.sisvendas.exception.EstoqueInsuficienteException;
+import com.sisvendas.exception.VendaJaCanceladaException;
+import com.sisvendas.model.Estorno;
+import com.sisvendas.model.ItemVenda;
+import com.sisvendas.model.Produto;
+import com.sisvendas.model.TipoVenda;
+import com.sisvendas.model.Venda;
+import com.sisvendas.repository.ProdutoRepository;
+import com.sisvendas.repository.VendaRepository;
+import com.sisvendas.repository.memory.InMemoryProdutoRepository;
+import com.sisvendas.repository.memory.InMemoryVendaRepository;
+import com.sisvendas.util.Par;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Dispara vendas concorrentes com itens sobrepostos (e reposições e cancelamentos, se configurado) contra um
+// VendaService montado sobre os repositórios informados e confere, ao final, que nenhum estoque ficou negativo,
+// nenhuma venda se perdeu, nenhuma venda foi estornada duas vezes e estoque inicial + reposto = estoque final +
+// vendido (sem as vendas estornadas) para cada produto.
+// Também pode ser executado como soak: SimuladorConcorrenciaVendas [threads] [segundos].
+final class SimuladorConcorrenciaVendas {
+
+    record Configuracao(int threads,
+                        int produtos,
+                        int estoqueInicial,
+                        int vendasPorThread,
+                        int maxItensPorVenda,
+                        int maxQuantidadePorItem,
+                        int reposicoesPorThread,
+                        int cancelamentosPorThread,
+                        long semente) { }
+
+    record Relatorio(long registradas,
+                     long rejeitadas,
+                     long reposicoes,
+                     long cancelamentos,
+                     long cancelamentosRepetidos,
+                     List<String> violacoes) { }
+
+    private SimuladorConcorrenciaVendas() {
+    }
+
+    static Relatorio executar(Supplier<? extends ProdutoRepository> produtoRepositories,
+                              Supplier<? extends VendaRepository> vendaRepositories,
+                              Configuracao config) throws InterruptedException {
+        ProdutoRepository produtoRepository = produtoRepositories.get();
+        VendaRepository vendaRepository = vendaRepositories.get();
+        List<String> codigos = new ArrayList<>(config.produtos());
+        for (int i = 0; i < config.produtos(); i++) {
+            String codigo = String.format("P%03d", i);
+            codigos.add(codigo);
+            produtoRepository.salvar(new Produto(codigo, "Produto " + i, 1.0 + i, config.estoqueInicial()));
+        }
+        VendaService service = new VendaService(produtoRepository, vendaRepository);
+
+        Queue<String> violacoes = new ConcurrentLinkedQueue<>();
+        Queue<Par<Venda, Map<String, Integer>>> registradas = new ConcurrentLinkedQueue<>();
+        AtomicLong rejeitadas = new AtomicLong();
+        AtomicLong reposicoes = new AtomicLong();
+        AtomicLong cancelamentosRepetidos = new AtomicLong();
+        Queue<Estorno> estornosConfirmados = new ConcurrentLinkedQueue<>();
+        List<Venda> cancelaveis = Collections.synchronizedList(new ArrayList<>());
+        AtomicLongArray repostoPorProduto = new AtomicLongArray(config.produtos());
+        AtomicBoolean executando = new AtomicBoolean(true);
+        CyclicBarrier largada = new CyclicBarrier(config.threads() + 1);
+
+        Logger logger = Logger.getLogger(VendaService.class.getName());
+        Level nivelAnterior = logger.getLevel();
+        logger.setLevel(Level.WARNING);
+        try {
+            Thread observador = new Thread(() -> {
+                while (executando.get()) {
+                    for (Produto p : produtoRepository.listarTodos()) {
+                        if (p.getQuantidade() < 0) {
+                            violacoes.add("estoque negativo observado durante a execução: " + p);
+                        }
+                    }
+                    Thread.yield();
+                }
+            }, "observador-estoque");
+            observador.start();
+
+            List<Thread> clientes = new ArrayList<>(config.threads());
+            for (int t = 0; t < config.threads(); t++) {
+                Random random = new Random(config.semente() * 31 + t);
+                Thread cliente = new Thread(() -> {
+                    try {
+                        largada.await();
+                        for (int i = 0; i < config.vendasPorThread(); i++) {
+                            if (config.reposicoesPorThread() > 0
+                                    && random.nextInt(config.vendasPorThread()) < config.reposicoesPorThread()) {
+                                int indice = random.nextInt(config.produtos());
+                                int quantidade = 1 + random.nextInt(config.maxQuantidadePorItem());
+                                service.reporEstoque(List.of(new Par<>(codigos.get(indice), quantidade)));
+                                repostoPorProduto.addAndGet(indice, quantidade);
+                                reposicoes.incrementAndGet();
+                            }
+                            if (config.cancelamentosPorThread() > 0
+                                    && random.nextInt(config.vendasPorThread()) < config.cancelamentosPorThread()) {
+                                Venda alvo = sortearCancelavel(random, cancelaveis);
+                                if (alvo != null) {
+                                    try {
+                                        estornosConfirmados.add(service.cancelarVenda(alvo.getId()));
+                                    } catch (VendaJaCanceladaException e) {
+                                        cancelamentosRepetidos.incrementAndGet();
+                                    }
+                                }
+                            }
+                            List<Par<String, Integer>> itens = sortearItens(random, codigos, config);
+                            try {
+                                Venda venda = service.registrarVenda(TipoVenda.LOJA, itens, Optional.empty());
+                                registradas.add(new Par<>(venda, somarPorCodigo(itens)));
+                                cancelaveis.add(venda);
+                            } catch (EstoqueInsuficienteException e) {
+                                rejeitadas.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception | AssertionError e) {
+                        violacoes.add("falha inesperada em " + Thread.currentThread().getName() + ": " + e);
+                    }
+                }, "cliente-" + t);
+                clientes.add(cliente);
+                cliente.start();
+            }
+            try {
+                largada.await();
+            } catch (BrokenBarrierException e) {
+                violacoes.add("largada interrompida: " + e);
+            }
+            for (Thread cliente : clientes) {
+                cliente.join();
+            }
+            executando.set(false);
+            observador.join();
+        } finally {
+            logger.setLevel(nivelAnterior);
+        }
+
+        verificar(produtoRepository, vendaRepository, codigos, config, repostoPorProduto, registradas, violacoes);
+        verificarEstornos(vendaRepository, estornosConfirmados, violacoes);
+        return new Relatorio(registradas.size(), rejeitadas.get(), reposicoes.get(), estornosConfirmados.size(),
+                cancelamentosRepetidos.get(), List.copyOf(violacoes));
+    }
+
+    private static Venda sortearCancelavel(Random random, List<Venda> cancelaveis) {
+        synchronized (cancelaveis) {
+            // Não remove da lista: outras threads podem sortear a mesma venda e tentar cancelá-la em dobro.
+            return cancelaveis.isEmpty() ? null : cancelaveis.get(random.nextInt(cancelaveis.size()));
+        }
+    }
+
+    private static void verificarEstornos(VendaRepository vendaRepository,
+                                          Queue<Estorno> estornosConfirmados,
+                                          Queue<String> violacoes) {
+        List<Estorno> gravados = vendaRepository.listarEstornos();
+        Set<String> vendasEstornadas = new HashSet<>();
+        for (Estorno estorno : gravados) {
+            if (!vendasEstornadas.add(estorno.getVenda().getId())) {
+                violacoes.add("venda estornada mais de uma vez: " + estorno.getVenda().getId());
+            }
+        }
+        if (gravados.size() != estornosConfirmados.size()) {
+            violacoes.add("estornos confirmados=" + estornosConfirmados.size() + ", estornos gravados=" + gravados.size());
+        }
+        for (Estorno confirmado : estornosConfirmados) {
+            if (!vendasEstornadas.contains(confirmado.getVenda().getId())) {
+                violacoes.add("estorno confirmado e não gravado: " + confirmado.getId());
+            }
+        }
+    }
+
+    private static void verificar(ProdutoRepository produtoRepository,
+                                  VendaRepository vendaRepository,
+                                  List<String> codigos,
+                                  Configuracao config,
+                                  AtomicLongArray repostoPorProduto,
+                                  Queue<Par<Venda, Map<String, Integer>>> registradas,
+                                  Queue<String> violacoes) {
+        List<Venda> gravadas = vendaRepository.listarTodas();
+        Set<String> idsGravados = new HashSet<>();
+        Map<String, Long> vendidoPorProduto = new HashMap<>();
+        for (Venda venda : gravadas) {
+            if (!idsGravados.add(venda.getId())) {
+                violacoes.add("venda gravada em duplicidade: " + venda.getId());
+            }
+            for (ItemVenda item : venda.getItens()) {
+                vendidoPorProduto.merge(item.getProduto().getCodigo(), (long) item.getQuantidade(), Long::sum);
+            }
+        }
+        for (Estorno estorno : vendaRepository.listarEstornos()) {
+            for (ItemVenda item : estorno.getItens()) {
+                vendidoPorProduto.merge(item.getProduto().getCodigo(), (long) -item.getQuantidade(), Long::sum);
+            }
+        }
+
+        if (gravadas.size() != registradas.size()) {
+            violacoes.add("vendas confirmadas=" + registradas.size() + ", vendas gravadas=" + gravadas.size());
+        }
+        for (Par<Venda, Map<String, Integer>> registrada : registradas) {
+            Venda venda = registrada.primeiro();
+            if (!idsGravados.contains(venda.getId())) {
+                violacoes.add("venda confirmada e não gravada: " + venda.getId());
+            }
+            Map<String, Integer> debitado = new LinkedHashMap<>();
+            venda.getItens().forEach(i -> debitado.merge(i.getProduto().getCodigo(), i.getQuantidade(), Integer::sum));
+            if (!debitado.equals(registrada.segundo())) {
+                violacoes.add("débito parcial na venda " + venda.getId()
+                        + ": solicitado=" + registrada.segundo() + ", debitado=" + debitado);
+            }
+        }
+
+        for (int i = 0; i < codigos.size(); i++) {
+            String codigo = codigos.get(i);
+            Optional<Produto> produto = produtoRepository.buscarPorCodigo(codigo);
+            if (produto.isEmpty()) {
+                violacoes.add("produto desapareceu do repositório: " + codigo);
+                continue;
+            }
+            long restante = produto.get().getQuantidade();
+            long vendido = vendidoPorProduto.getOrDefault(codigo, 0L);
+            long entrada = config.estoqueInicial() + repostoPorProduto.get(i);
+            if (restante < 0) {
+                violacoes.add("estoque final negativo: " + produto.get());
+            }
+            if (entrada != restante + vendido) {
+                violacoes.add(codigo + ": inicial+reposto=" + entrada + " mas restante+vendido=" + (restante + vendido));
+            }
+        }
+    }
+
+    private static List<Par<String, Integer>> sortearItens(Random random, List<String> codigos, Configuracao config) {
+        int quantidadeItens = 1 + random.nextInt(config.maxItensPorVenda());
+        List<Par<String, Integer>> itens = new ArrayList<>(quantidadeItens);
+        for (int i = 0; i < quantidadeItens; i++) {
+            // Códigos podem se repetir na mesma venda de propósito: o serviço precisa somá-los num único débito.
+            itens.add(new Par<>(codigos.get(random.nextInt(codigos.size())), 1 + random.nextInt(config.maxQuantidadePorItem())));
+        }
+        return itens;
+    }
+
+    private static Map<String, Integer> somarPorCodigo(List<Par<String, Integer>> itens) {
+        Map<String, Integer> soma = new LinkedHashMap<>();
+        itens.forEach(p -> soma.merge(p.primeiro(), p.segundo(), Integer::sum));
+        return soma;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        long segundos = args.length > 1 ? Long.parseLong(args[1]) : 60;
+        long fim = System.nanoTime() + segundos * 1_000_000_000L;
+        long rodada = 0;
+        long falhas = 0;
+        while (System.nanoTime() < fim) {
+            long semente = System.nanoTime();
+            Relatorio relatorio = executar(InMemoryProdutoRepository::new, InMemoryVendaRepository::new,
+                    new Configuracao(threads, 16, 2_000, 2_000, 4, 3, 200, 200, semente));
+            rodada++;
+            if (!relatorio.violacoes().isEmpty()) {
+                falhas++;
+                System.out.println("Rodada " + rodada + " (semente " + semente + ") violou invariantes:");
+                relatorio.violacoes().stream().limit(20).forEach(v -> System.out.println("  " + v));
+            } else if (rodada % 10 == 0) {
+                System.out.printf("Rodada %d ok: registradas=%d, rejeitadas=%d, reposições=%d, cancelamentos=%d (repetidos=%d)%n",
+                        rodada, relatorio.registradas(), relatorio.rejeitadas(), relatorio.reposicoes(),
+                        relatorio.cancelamentos(), relatorio.cancelamentosRepetidos());
+            }
+        }
+        System.out.println("Soak concluído: rodadas=" + rodada + ", com violação=" + falhas);
+        if (falhas > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.sisvendas.service;
+
+import com.sisvendas.exception.EstoqueInsuficienteException;
+import com.sisvendas.model.Produto;
+import com.sisvendas.model.TipoVenda;
+import com.sisvendas.repository.memory.InMemoryProdutoRepository;
+import com.sisvendas.repository.memory.InMemoryVendaRepository;
+import com.sisvendas.util.Par;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VendaServiceConcorrenciaTest {
+    private static final Logger LOGGER_SERVICE = Logger.getLogger(VendaService.class.getName());
+    private static Level nivelAnterior;
+
+    @BeforeAll
+    static void silenciarLog() {
+        nivelAnterior = LOGGER_SERVICE.getLevel();
+        LOGGER_SERVICE.setLevel(Level.WARNING);
+    }
+
+    @AfterAll
+    static void restaurarLog() {
+        LOGGER_SERVICE.setLevel(nivelAnterior);
+    }
+
+    @Test
+    void vendasConcorrentesComItensSobrepostosMantemInvariantes() throws InterruptedException {
+        SimuladorConcorrenciaVendas.Relatorio relatorio = SimuladorConcorrenciaVendas.executar(
+                InMemoryProdutoRepository::new, InMemoryVendaRepository::new,
+                new SimuladorConcorrenciaVendas.Configuracao(8, 6, 200, 400, 4, 3, 20, 40, 42L));
+
+        assertTrue(relatorio.violacoes().isEmpty(), () -> String.join("\n", relatorio.violacoes()));
+        assertTrue(relatorio.registradas() > 0);
+        assertTrue(relatorio.rejeitadas() > 0, "a carga deve esgotar o estoque para exercitar as rejeições");
+        assertTrue(relatorio.cancelamentos() > 0);
+    }
+
+    // Estilo jcstress: dois atores disputam a última unidade de "Y" com pedidos que se sobrepõem só nela.
+    // Resultados aceitáveis: exatamente um dos dois vence e o outro não debita nada.
+    @Test
+    void corridaPelaUltimaUnidadeTemUmUnicoVencedor() throws Exception {
+        Map<String, Integer> resultados = new TreeMap<>();
+        for (int rodada = 0; rodada < 2_000; rodada++) {
+            InMemoryProdutoRepository produtoRepo = new InMemoryProdutoRepository();
+            produtoRepo.salvar(new Produto("X", "X", 1.0, 1));
+            produtoRepo.salvar(new Produto("Y", "Y", 1.0, 1));
+            produtoRepo.salvar(new Produto("Z", "Z", 1.0, 1));
+            VendaService service = new VendaService(produtoRepo, new InMemoryVendaRepository());
+
+            CyclicBarrier largada = new CyclicBarrier(2);
+            AtomicBoolean venceuA = new AtomicBoolean();
+            AtomicBoolean venceuB = new AtomicBoolean();
+            Thread a = ator(largada, venceuA, () ->
+                    service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("X", 1), new Par<>("Y", 1)), Optional.empty()));
+            Thread b = ator(largada, venceuB, () ->
+                    service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("Z", 1), new Par<>("Y", 1)), Optional.empty()));
+            a.join();
+            b.join();
+
+            String resultado = (venceuA.get() ? "A" : "-") + (venceuB.get() ? "B" : "-")
+                    + " X=" + estoque(produtoRepo, "X") + " Y=" + estoque(produtoRepo, "Y") + " Z=" + estoque(produtoRepo, "Z");
+            resultados.merge(resultado, 1, Integer::sum);
+        }
+
+        assertTrue(List.of("A- X=0 Y=0 Z=1", "-B X=1 Y=0 Z=0").containsAll(resultados.keySet()),
+                () -> "resultados inesperados: " + resultados);
+    }
+
+    private static Thread ator(CyclicBarrier largada, AtomicBoolean venceu, Runnable venda) {
+        Thread t = new Thread(() -> {
+            try {
+                largada.await();
+                venda.run();
+                venceu.set(true);
+            } catch (EstoqueInsuficienteException e) {
+                venceu.set(false);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        t.start();
+        return t;
+    }
+
+    private static int estoque(InMemoryProdutoRepository repo, String codigo) {
+        return repo.buscarPorCodigo(codigo).get().getQuantidade();
+    }
+}
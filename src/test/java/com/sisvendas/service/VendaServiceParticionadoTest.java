@@ -0,0 +1,145 @@
+package com.sisvendas.service;
+
+import com.sisvendas.exception.EstoqueInsuficienteException;
+import com.sisvendas.model.EnderecoEntrega;
+import com.sisvendas.model.Produto;
+import com.sisvendas.model.TipoVenda;
+import com.sisvendas.model.Venda;
+import com.sisvendas.repository.memory.InMemoryProdutoRepository;
+import com.sisvendas.repository.memory.InMemoryVendaRepository;
+import com.sisvendas.service.dto.ManifestoEnvio;
+import com.sisvendas.service.dto.ResumoVendas;
+import com.sisvendas.util.Par;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VendaServiceParticionadoTest {
+    private VendaServiceParticionado service;
+
+    @BeforeEach
+    void setup() {
+        service = new VendaServiceParticionado(4, InMemoryProdutoRepository::new, InMemoryVendaRepository::new);
+        List<Produto> produtos = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            produtos.add(new Produto(String.format("%03d", i), "Produto " + i, 1.0, 10));
+        }
+        service.salvarProdutos(produtos);
+    }
+
+    @AfterEach
+    void fechar() {
+        service.close();
+    }
+
+    @Test
+    void deveRegistrarVendaComItensDeVariasParticoes() {
+        List<Par<String, Integer>> itens = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            itens.add(new Par<>(String.format("%03d", i), 2));
+        }
+        Venda v = service.registrarVenda(TipoVenda.LOJA, itens, Optional.empty());
+
+        assertEquals(20, v.getItens().size());
+        assertEquals("000", v.getItens().get(0).getProduto().getCodigo());
+        assertTrue(service.listarEstoque().stream().allMatch(p -> p.getQuantidade() == 8));
+        assertEquals(List.of(v), service.listarVendas());
+    }
+
+    @Test
+    void naoDeveDebitarNenhumaParticaoQuandoUmaReservaFalha() {
+        List<Par<String, Integer>> itens = new ArrayList<>();
+        for (int i = 0; i < 19; i++) {
+            itens.add(new Par<>(String.format("%03d", i), 5));
+        }
+        itens.add(new Par<>("019", 11));
+
+        assertThrows(EstoqueInsuficienteException.class, () ->
+                service.registrarVenda(TipoVenda.LOJA, itens, Optional.empty()));
+        assertTrue(service.listarEstoque().stream().allMatch(p -> p.getQuantidade() == 10));
+        assertTrue(service.listarVendas().isEmpty());
+    }
+
+    @Test
+    void interrupcaoDoChamadorNaoPerdeReservas() {
+        List<Par<String, Integer>> itens = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            itens.add(new Par<>(String.format("%03d", i), 1));
+        }
+
+        Thread.currentThread().interrupt();
+        try {
+            service.registrarVenda(TipoVenda.LOJA, itens, Optional.empty());
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertEquals(1, service.listarVendas().size());
+        assertEquals(180, service.listarEstoque().stream().mapToInt(Produto::getQuantidade).sum());
+    }
+
+    @Test
+    void resumoAgregaTodasAsParticoes() {
+        service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("001", 3), new Par<>("002", 1)), Optional.empty());
+        service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("002", 4)), Optional.empty());
+
+        ResumoVendas resumo = service.listarResumoVendas();
+        assertEquals(8, resumo.totalItensVendidos());
+        assertEquals(8.0, resumo.valorTotalVendido(), 0.0001);
+        assertEquals("002", resumo.porProduto().get(0).codigo());
+        assertEquals(5, resumo.porProduto().get(0).quantidadeVendida());
+    }
+
+    @Test
+    void cancelarVendaMultiParticaoDevolveEstoqueEmTodas() {
+        List<Par<String, Integer>> itens = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            itens.add(new Par<>(String.format("%03d", i), 4));
+        }
+        Venda v = service.registrarVenda(TipoVenda.LOJA, itens, Optional.empty());
+
+        service.cancelarVenda(v.getId());
+
+        assertTrue(service.listarEstoque().stream().allMatch(p -> p.getQuantidade() == 10));
+        assertEquals(0, service.listarResumoVendas().totalItensVendidos());
+        assertEquals(1, service.listarEstornos().size());
+        assertTrue(service.tempoAteRuptura("000").isEmpty());
+        assertTrue(service.tempoAteRuptura("019").isEmpty());
+    }
+
+    @Test
+    void vendaWebMultiParticaoApareceNasEntregasENoManifesto() {
+        List<Par<String, Integer>> itens = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            itens.add(new Par<>(String.format("%03d", i), 1));
+        }
+        Venda natal = service.registrarVenda(TipoVenda.WEB, itens,
+                Optional.of(new EnderecoEntrega("Cliente X","Rua A","123","Centro","Natal","RN","59000-000")));
+        Venda mossoro = service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("007", 1)),
+                Optional.of(new EnderecoEntrega("Cliente Y","Rua B","10","Centro","Mossoró","RN","59600-000")));
+
+        assertEquals(List.of(natal, mossoro), service.listarEntregasPendentesPorUf("rn"));
+        assertEquals(List.of(mossoro), service.listarEntregasPendentesPorCep("596"));
+        assertEquals(List.of(natal), service.listarEntregasPendentesPorFaixaCep("59000-000", "59099-999"));
+
+        ManifestoEnvio manifesto = service.gerarManifestoEnvio("RN");
+        assertEquals(List.of(natal, mossoro), manifesto.vendas());
+        assertEquals(List.of(natal, mossoro), service.confirmarEnvio(manifesto).vendas());
+        assertTrue(service.listarEntregasPendentesPorUf("RN").isEmpty());
+        assertTrue(service.confirmarEnvio(manifesto).vendas().isEmpty());
+    }
+
+    @Test
+    void tempoAteRupturaConsultaAParticaoDoProduto() {
+        assertTrue(service.tempoAteRuptura("005").isEmpty());
+        service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("005", 2)), Optional.empty());
+        assertTrue(service.tempoAteRuptura("005").isPresent());
+    }
+}
@@ -2,19 +2,33 @@ package com.sisvendas.service;
 
 import com.sisvendas.exception.EstoqueInsuficienteException;
 import com.sisvendas.exception.ProdutoNaoEncontradoException;
+import com.sisvendas.exception.ValidacaoVendaException;
+import com.sisvendas.exception.VendaJaCanceladaException;
+import com.sisvendas.exception.VendaNaoEncontradaException;
 import com.sisvendas.model.EnderecoEntrega;
+import com.sisvendas.model.Estorno;
 import com.sisvendas.model.Produto;
 import com.sisvendas.model.TipoVenda;
 import com.sisvendas.model.Venda;
 import com.sisvendas.repository.memory.InMemoryProdutoRepository;
 import com.sisvendas.repository.memory.InMemoryVendaRepository;
+import com.sisvendas.service.dto.ManifestoEnvio;
+import com.sisvendas.service.dto.PrevisaoRuptura;
 import com.sisvendas.service.dto.ResumoVendas;
 import com.sisvendas.util.Par;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -73,6 +87,14 @@ public class VendaServiceTest {
         assertEquals(estoqueAntes, produtoRepo.buscarPorCodigo("002").get().getQuantidade());
     }
 
+    @Test
+    void reposicaoQueEstouraOEstoqueNaoAlteraNenhumProduto() {
+        assertThrows(IllegalArgumentException.class, () -> service.reporEstoque(
+                List.of(new Par<>("002", 5), new Par<>("001", Integer.MAX_VALUE))));
+        assertEquals(100, produtoRepo.buscarPorCodigo("001").get().getQuantidade());
+        assertEquals(50, produtoRepo.buscarPorCodigo("002").get().getQuantidade());
+    }
+
     @Test
     void listarVendasOrdenadoPorDataDesc() throws InterruptedException {
         service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("001", 1)), Optional.empty());
@@ -93,6 +115,210 @@ public class VendaServiceTest {
         assertEquals("001", resumo.porProduto().get(0).codigo());
         assertEquals(5, resumo.porProduto().get(0).quantidadeVendida());
     }
-}
 
+    @Test
+    void deveCompartilharEnderecoIgualEntreVendasWeb() {
+        Venda v1 = service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("001", 1)),
+                Optional.of(new EnderecoEntrega("Cliente X","Rua A","123","Centro","Natal","RN","59000-000")));
+        Venda v2 = service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("002", 1)),
+                Optional.of(new EnderecoEntrega(" Cliente X","Rua A ","123","Centro","Natal","RN","59000-000")));
+        assertSame(v1.getEnderecoEntrega().get(), v2.getEnderecoEntrega().get());
+    }
+
+    @Test
+    void manifestoDeEnvioConsomeVendasPendentesDaUf() {
+        Venda natal = service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("001", 1)),
+                Optional.of(new EnderecoEntrega("Cliente X","Rua A","123","Centro","Natal","RN","59000-000")));
+        Venda mossoro = service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("001", 1)),
+                Optional.of(new EnderecoEntrega("Cliente Y","Rua B","10","Centro","Mossoró","rn","59600-000")));
+        Venda recife = service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("002", 1)),
+                Optional.of(new EnderecoEntrega("Cliente Z","Rua C","1","Boa Vista","Recife","PE","50000-000")));
+        service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("003", 1)), Optional.empty());
+
+        assertEquals(List.of(mossoro), service.listarEntregasPendentesPorCep("596"));
+        assertEquals(List.of(recife, natal), service.listarEntregasPendentesPorFaixaCep("50000-000", "59099-999"));
+
+        ManifestoEnvio manifesto = service.gerarManifestoEnvio("RN");
+        assertEquals(List.of(natal, mossoro), manifesto.vendas());
+        assertEquals(List.of(natal, mossoro), service.listarEntregasPendentesPorUf("RN"));
+
+        assertEquals(List.of(natal, mossoro), service.confirmarEnvio(manifesto).vendas());
+        assertTrue(service.listarEntregasPendentesPorUf("RN").isEmpty());
+        assertTrue(service.confirmarEnvio(manifesto).vendas().isEmpty());
+        assertEquals(List.of(recife), service.listarEntregasPendentesPorUf("PE"));
+    }
+
+    @Test
+    void manifestosConcorrentesComNovasVendasDespachamCadaVendaUmaVez() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        AtomicBoolean registrando = new AtomicBoolean(true);
+        try {
+            Future<Integer> despachadas = executor.submit(() -> {
+                int total = 0;
+                while (registrando.get()) {
+                    total += service.confirmarEnvio(service.gerarManifestoEnvio("RN")).vendas().size();
+                }
+                return total;
+            });
+            List<Future<?>> vendedores = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                vendedores.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("001", 1)),
+                                Optional.of(new EnderecoEntrega("Cliente X","Rua A","123","Centro","Natal","RN","59000-000")));
+                    }
+                }));
+            }
+            for (Future<?> vendedor : vendedores) {
+                vendedor.get();
+            }
+            registrando.set(false);
+
+            int total = despachadas.get()
+                    + service.confirmarEnvio(service.gerarManifestoEnvio("RN")).vendas().size();
+            assertEquals(100, total);
+            assertTrue(service.listarEntregasPendentesPorUf("RN").isEmpty());
+            assertTrue(service.listarEntregasPendentesPorCep("59").isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void novoServicoSobreRepositorioExistenteRecuperaEntregasPendentes() {
+        EnderecoEntrega natal = new EnderecoEntrega("Cliente X","Rua A","123","Centro","Natal","RN","59000-000");
+        Venda pendente = service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("001", 1)), Optional.of(natal));
+        Venda cancelada = service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("001", 1)), Optional.of(natal));
+        Venda enviada = service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("002", 1)), Optional.of(natal));
+        service.cancelarVenda(cancelada.getId());
+        service.confirmarEnvio(new ManifestoEnvio("RN", LocalDateTime.now(), List.of(enviada)));
+
+        VendaService reiniciado = new VendaService(produtoRepo, vendaRepo);
+
+        assertEquals(List.of(pendente), reiniciado.listarEntregasPendentesPorUf("RN"));
+    }
+
+    @Test
+    void reenvioComMesmaChaveDevolveVendaOriginal() {
+        Venda original = service.registrarVenda("terminal-1:42", TipoVenda.LOJA, List.of(new Par<>("001", 2)), Optional.empty());
+        Venda reenvio = service.registrarVenda("terminal-1:42", TipoVenda.LOJA, List.of(new Par<>("001", 2)), Optional.empty());
+
+        assertSame(original, reenvio);
+        assertEquals(98, produtoRepo.buscarPorCodigo("001").get().getQuantidade());
+        assertEquals(1, service.listarVendas().size());
+    }
+
+    @Test
+    void chaveReaproveitadaParaOutroCarrinhoEhRejeitada() {
+        Venda original = service.registrarVenda("terminal-1:42", TipoVenda.LOJA,
+                List.of(new Par<>("001", 1), new Par<>("002", 1)), Optional.empty());
+
+        assertSame(original, service.registrarVenda("terminal-1:42", TipoVenda.LOJA,
+                List.of(new Par<>("002", 1), new Par<>("001", 1)), Optional.empty()));
+        assertThrows(ValidacaoVendaException.class, () -> service.registrarVenda("terminal-1:42", TipoVenda.LOJA,
+                List.of(new Par<>("001", 3)), Optional.empty()));
+        assertEquals(99, produtoRepo.buscarPorCodigo("001").get().getQuantidade());
+        assertEquals(1, service.listarVendas().size());
+    }
+
+    @Test
+    void reenviosConcorrentesExecutamUmaUnicaVez() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<Venda>> tentativas = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tentativas.add(executor.submit(() -> {
+                    largada.await();
+                    return service.registrarVenda("terminal-2:7", TipoVenda.LOJA, List.of(new Par<>("002", 1)), Optional.empty());
+                }));
+            }
+            largada.countDown();
+            Venda primeira = tentativas.get(0).get();
+            for (Future<Venda> tentativa : tentativas) {
+                assertSame(primeira, tentativa.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(49, produtoRepo.buscarPorCodigo("002").get().getQuantidade());
+        assertEquals(1, service.listarVendas().size());
+    }
+
+    @Test
+    void registrarVendaAtualizaPrevisaoDeRuptura() {
+        assertTrue(service.tempoAteRuptura("002").isEmpty());
+
+        service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("002", 10)), Optional.empty());
+
+        assertTrue(service.tempoAteRuptura("002").isPresent());
+        List<PrevisaoRuptura> emRisco = service.listarProdutosEmRisco(Duration.ofDays(3650));
+        assertEquals(List.of("002"), emRisco.stream().map(PrevisaoRuptura::codigo).toList());
+        assertEquals(40, emRisco.get(0).estoque());
+    }
+
+    @Test
+    void cancelarVendaDevolveEstoqueEAjustaResumo() {
+        service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("001", 3)), Optional.empty());
+        Venda v = service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("001", 2), new Par<>("002", 1)), Optional.empty());
+
+        Estorno estorno = service.cancelarVenda(v.getId());
+
+        assertEquals(v, estorno.getVenda());
+        assertEquals(97, produtoRepo.buscarPorCodigo("001").get().getQuantidade());
+        assertEquals(50, produtoRepo.buscarPorCodigo("002").get().getQuantidade());
+        ResumoVendas resumo = service.listarResumoVendas();
+        assertEquals(3, resumo.totalItensVendidos());
+        assertEquals(7.5, resumo.valorTotalVendido(), 0.0001);
+        assertEquals(1, resumo.porProduto().size());
+        assertEquals(List.of(estorno), service.listarEstornos());
+    }
+
+    @Test
+    void cancelarVendaDesfazATaxaDeVendasDaPrevisao() {
+        Venda v = service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("002", 10)), Optional.empty());
+        service.cancelarVenda(v.getId());
+
+        assertTrue(service.tempoAteRuptura("002").isEmpty());
+        assertTrue(service.listarProdutosEmRisco(Duration.ofDays(3650)).isEmpty());
+    }
+
+    @Test
+    void cancelamentoAntesDaIndexacaoNaoDeixaEntregaPendente() {
+        VendaService[] servico = new VendaService[1];
+        InMemoryVendaRepository cancelaAoSalvar = new InMemoryVendaRepository() {
+            @Override
+            public void salvar(Venda venda) {
+                super.salvar(venda);
+                servico[0].cancelarVenda(venda.getId());
+            }
+        };
+        servico[0] = new VendaService(produtoRepo, cancelaAoSalvar);
+
+        servico[0].registrarVenda(TipoVenda.WEB, List.of(new Par<>("001", 1)),
+                Optional.of(new EnderecoEntrega("Cliente X","Rua A","123","Centro","Natal","RN","59000-000")));
+
+        assertTrue(servico[0].listarEntregasPendentesPorUf("RN").isEmpty());
+        assertTrue(servico[0].gerarManifestoEnvio("RN").vendas().isEmpty());
+        assertEquals(100, produtoRepo.buscarPorCodigo("001").get().getQuantidade());
+    }
+
+    @Test
+    void naoDeveCancelarDuasVezesNemVendaInexistente() {
+        Venda v = service.registrarVenda(TipoVenda.LOJA, List.of(new Par<>("003", 5)), Optional.empty());
+        service.cancelarVenda(v.getId());
+
+        assertThrows(VendaJaCanceladaException.class, () -> service.cancelarVenda(v.getId()));
+        assertThrows(VendaNaoEncontradaException.class, () -> service.cancelarVenda("inexistente"));
+        assertEquals(20, produtoRepo.buscarPorCodigo("003").get().getQuantidade());
+    }
+
+    @Test
+    void cancelarVendaWebRetiraDasEntregasPendentes() {
+        Venda v = service.registrarVenda(TipoVenda.WEB, List.of(new Par<>("001", 1)),
+                Optional.of(new EnderecoEntrega("Cliente X","Rua A","123","Centro","Natal","RN","59000-000")));
+        service.cancelarVenda(v.getId());
+        assertTrue(service.listarEntregasPendentesPorUf("RN").isEmpty());
+    }
+}
 
@@ -0,0 +1,101 @@
+package com.sisvendas.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheIdempotenciaTest {
+    private final AtomicLong relogio = new AtomicLong();
+    private final CacheIdempotencia<Integer> cache = new CacheIdempotencia<>(2, Duration.ofSeconds(10), relogio::get);
+    private final AtomicInteger execucoes = new AtomicInteger();
+
+    @Test
+    void deveReaproveitarResultadoDentroDaValidade() {
+        assertEquals(1, cache.executar("a", execucoes::incrementAndGet));
+        relogio.set(Duration.ofSeconds(9).toNanos());
+        assertEquals(1, cache.executar("a", execucoes::incrementAndGet));
+        relogio.set(Duration.ofSeconds(10).toNanos());
+        assertEquals(2, cache.executar("a", execucoes::incrementAndGet));
+    }
+
+    @Test
+    void chaveComOutraAssinaturaEhConflito() {
+        assertEquals(1, cache.executar("a", "pedido-1", execucoes::incrementAndGet));
+        assertEquals(1, cache.executar("a", "pedido-1", execucoes::incrementAndGet));
+        assertThrows(ConflitoIdempotenciaException.class,
+                () -> cache.executar("a", "pedido-2", execucoes::incrementAndGet));
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void naoDeveGuardarFalhas() {
+        assertThrows(IllegalStateException.class, () -> cache.executar("a", () -> {
+            throw new IllegalStateException("falhou");
+        }));
+        assertEquals(1, cache.executar("a", execucoes::incrementAndGet));
+    }
+
+    @Test
+    void deveDespejarEntradasMaisAntigasAcimaDaCapacidade() {
+        cache.executar("a", execucoes::incrementAndGet);
+        cache.executar("b", execucoes::incrementAndGet);
+        cache.executar("c", execucoes::incrementAndGet);
+
+        assertEquals(2, cache.tamanho());
+        assertEquals(4, cache.executar("a", execucoes::incrementAndGet));
+    }
+
+    @Test
+    void falhasRepetidasNaoDespejamChavesValidas() {
+        assertEquals(1, cache.executar("a", execucoes::incrementAndGet));
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IllegalStateException.class, () -> cache.executar("b", () -> {
+                throw new IllegalStateException("falhou");
+            }));
+        }
+
+        assertEquals(1, cache.executar("a", execucoes::incrementAndGet));
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void tentativaEmAndamentoNaoImpedeDespejoDasSeguintes() throws Exception {
+        CountDownLatch iniciou = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> lenta = executor.submit(() -> cache.executar("lenta", () -> {
+                iniciou.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 0;
+            }));
+            iniciou.await();
+
+            cache.executar("a", execucoes::incrementAndGet);
+            cache.executar("b", execucoes::incrementAndGet);
+            cache.executar("c", execucoes::incrementAndGet);
+            assertEquals(2, cache.tamanho());
+
+            relogio.set(Duration.ofSeconds(10).toNanos());
+            cache.executar("d", execucoes::incrementAndGet);
+            assertEquals(2, cache.tamanho());
+
+            liberar.countDown();
+            assertEquals(0, lenta.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}